@@ -138,7 +138,7 @@ public abstract class PlatformCommand<C> {
             return CompletableFuture.completedFuture(Collections.emptyList());
         }
 
-        return CompletableFuture.supplyAsync(Collections::<String>emptyList, UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE)
+        return CompletableFuture.supplyAsync(Collections::<String>emptyList, UtilConcurrency.COMPUTE_EXECUTOR)
                 .thenCompose(ignore -> {
                     if (args.length > 0) {
                         for (PlatformCommand<C> subCommand : this.subCommands) {
@@ -319,7 +319,7 @@ public class AnnotationCommandParser<A extends PlatformCommand<B>, B> implements
 
                 return CompletableFuture.supplyAsync(() ->
                                         data.completer.getCompletions(sender, args, data.annotations.toArray(new Annotation[0])),
-                                UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE)
+                                UtilConcurrency.COMPUTE_EXECUTOR)
                         .exceptionally(throwable -> {
                             UtilLogger.logger().ifPresent(logger -> logger.error("Error when handling tab completions", throwable));
                             return Lists.newArrayList();
@@ -336,7 +336,7 @@ public class AnnotationCommandParser<A extends PlatformCommand<B>, B> implements
                         } catch (IllegalAccessException | InvocationTargetException e) {
                             throw new RuntimeException("Error when executing tab handler method " + tabHandlerMethod.getName() + " in class " + commandInstance.getClass().getName(), e);
                         }
-                    }, UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE)
+                    }, UtilConcurrency.COMPUTE_EXECUTOR)
                     .exceptionally(throwable -> {
                         UtilLogger.logger().ifPresent(logger -> logger.error("Error when handling tab completions", throwable));
                         return Lists.newArrayList();
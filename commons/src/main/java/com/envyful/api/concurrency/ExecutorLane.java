@@ -0,0 +1,234 @@
+package com.envyful.api.concurrency;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * A named, separately sized {@link Executor} used to keep different kinds of work
+ * (i.e. blocking I/O and CPU bound work) from starving each other.
+ * <br>
+ * Tracks the number of queued tasks, active tasks, and completed tasks so that saturation can be monitored
+ *
+ */
+public class ExecutorLane implements Executor {
+
+    private final String name;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+
+    private final int threads;
+
+    private volatile ExecutorService delegate;
+    private volatile boolean virtual;
+
+    private ExecutorLane(String name, int threads, ExecutorService delegate, boolean virtual) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.delegate = delegate;
+        this.virtual = virtual;
+    }
+
+    /**
+     *
+     * Runs the task on the lane.
+     * <br>
+     * If the lane is switched by {@link #setVirtual(boolean)} while the task is being submitted, and the old
+     * executor rejects it, the task is submitted again to the new executor
+     *
+     * @param command The task
+     */
+    @Override
+    public void execute(Runnable command) {
+        Runnable task = () -> {
+            this.queued.decrementAndGet();
+            this.active.incrementAndGet();
+
+            try {
+                command.run();
+            } finally {
+                this.active.decrementAndGet();
+                this.completed.incrementAndGet();
+            }
+        };
+
+        this.queued.incrementAndGet();
+
+        while (true) {
+            var executor = this.delegate;
+
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (this.delegate == executor) {
+                    this.queued.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     *
+     * Checks if this lane runs each task on its own virtual thread
+     *
+     * @return True if using virtual threads
+     */
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    /**
+     *
+     * Switches the lane between running each task on its own virtual thread, and running
+     * tasks on a fixed pool of platform threads.
+     * <br>
+     * Tasks already submitted finish on the executor they were submitted to, and tasks submitted
+     * during the switch are retried on the new executor if the old one rejects them.
+     * If virtual threads are not supported by the runtime the lane stays on platform threads
+     *
+     * @param virtual If virtual threads should be used
+     * @return True if the lane is now using virtual threads
+     */
+    public synchronized boolean setVirtual(boolean virtual) {
+        if (this.virtual == virtual) {
+            return this.virtual;
+        }
+
+        var executor = virtual ? newVirtualExecutor() : null;
+
+        if (virtual && executor == null) {
+            return false;
+        }
+
+        var previous = this.delegate;
+        this.delegate = executor == null ? newFixedExecutor(this.name, this.threads) : executor;
+        this.virtual = executor != null;
+        previous.shutdown();
+        return this.virtual;
+    }
+
+    /**
+     *
+     * Gets the number of tasks waiting for a thread
+     *
+     * @return The queue length
+     */
+    public int getQueueSize() {
+        return this.queued.get();
+    }
+
+    /**
+     *
+     * Gets the number of tasks currently running
+     *
+     * @return The active thread count
+     */
+    public int getActiveThreads() {
+        return this.active.get();
+    }
+
+    /**
+     *
+     * Gets the total number of tasks that have finished running
+     *
+     * @return The completed task count
+     */
+    public long getCompletedTasks() {
+        return this.completed.get();
+    }
+
+    /**
+     *
+     * Stops the lane accepting new tasks and waits for the running tasks to finish
+     *
+     * @param timeout The max time to wait
+     * @param timeUnit The unit of the timeout
+     * @return True if all tasks finished before the timeout
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        this.delegate.shutdown();
+        return this.delegate.awaitTermination(timeout, timeUnit);
+    }
+
+    /**
+     *
+     * Creates a lane backed by a fixed number of daemon platform threads
+     *
+     * @param name The name of the lane, used for the thread names
+     * @param threads The number of threads
+     * @return The lane
+     */
+    public static ExecutorLane fixed(String name, int threads) {
+        return new ExecutorLane(name, threads, newFixedExecutor(name, threads), false);
+    }
+
+    /**
+     *
+     * Creates a lane that runs each task on a new virtual thread.
+     * <br>
+     * Virtual threads are only available on Java 21+, on older versions this falls back to
+     * {@link #fixed(String, int)} using the given number of threads
+     *
+     * @param name The name of the lane
+     * @param fallbackThreads The number of threads to use if virtual threads are not supported
+     * @return The lane
+     */
+    public static ExecutorLane virtual(String name, int fallbackThreads) {
+        var executor = newVirtualExecutor();
+
+        if (executor == null) {
+            return fixed(name, fallbackThreads);
+        }
+
+        return new ExecutorLane(name, fallbackThreads, executor, true);
+    }
+
+    /**
+     *
+     * Checks if the current runtime supports virtual threads (Java 21+)
+     *
+     * @return True if virtual threads are supported
+     */
+    public static boolean isVirtualSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService newFixedExecutor(String name, int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("envyware_" + name + "_%d")
+                        .setUncaughtExceptionHandler(
+                                new DefaultUncaughtExceptionHandler()
+                        )
+                        .build());
+    }
+
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
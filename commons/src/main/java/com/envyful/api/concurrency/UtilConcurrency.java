@@ -17,14 +17,26 @@ import java.util.function.Supplier;
  *          - UtilForgeConcurrency
  *          - UtilSpigotConcurrency
  *
+ * Work is split into separate lanes so that a slow database can't block everything else:
+ *          - {@link UtilConcurrency#SCHEDULED_EXECUTOR_SERVICE} for scheduled, repeating, and general tasks
+ *          - {@link UtilConcurrency#IO_EXECUTOR} for blocking I/O (SQL, files, HTTP)
+ *          - {@link UtilConcurrency#COMPUTE_EXECUTOR} for short CPU bound work (i.e. tab completions)
+ *
  * You can change the number of threads used by the mod by setting the system property
  * `envyware.concurrency.threads` to the number of threads you want to use. The
  * default is 5.
+ * <br>
+ * The I/O lane size is set using `envyware.concurrency.io.threads` (default 16), and the compute lane
+ * using `envyware.concurrency.compute.threads` (default is the number of processors).
+ * Setting `envyware.concurrency.io.virtual` to true will run the I/O lane on virtual threads when using Java 21+
  *
  */
 public class UtilConcurrency {
 
     public static final int THREADS = Integer.parseInt(System.getProperty("envyware.concurrency.threads", "5"));
+    public static final int IO_THREADS = Integer.parseInt(System.getProperty("envyware.concurrency.io.threads", "16"));
+    public static final int COMPUTE_THREADS = Integer.parseInt(System.getProperty("envyware.concurrency.compute.threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
 
     public static final ScheduledExecutorService SCHEDULED_EXECUTOR_SERVICE =
             Executors.newScheduledThreadPool(THREADS,
@@ -36,6 +48,103 @@ public class UtilConcurrency {
                     )
                     .build());
 
+    public static final ExecutorLane IO_EXECUTOR = Boolean.getBoolean("envyware.concurrency.io.virtual") ?
+            ExecutorLane.virtual("io", IO_THREADS) : ExecutorLane.fixed("io", IO_THREADS);
+
+    public static final ExecutorLane COMPUTE_EXECUTOR = ExecutorLane.fixed("compute", COMPUTE_THREADS);
+
+    /**
+     *
+     * Switches the {@link UtilConcurrency#IO_EXECUTOR} between virtual threads and platform threads at runtime.
+     * <br>
+     * The same can be done at startup by setting the system property `envyware.concurrency.io.virtual` to true.
+     * On runtimes older than Java 21 the I/O lane will always use platform threads
+     *
+     * @param virtual If virtual threads should be used for blocking I/O
+     * @return True if the I/O lane is now using virtual threads
+     */
+    public static boolean setVirtualThreads(boolean virtual) {
+        return IO_EXECUTOR.setVirtual(virtual);
+    }
+
+    /**
+     *
+     * Checks if the {@link UtilConcurrency#IO_EXECUTOR} is running tasks on virtual threads
+     *
+     * @return True if using virtual threads
+     */
+    public static boolean isVirtualThreads() {
+        return IO_EXECUTOR.isVirtual();
+    }
+
+    /**
+     *
+     * Runs a blocking task that can throw an exception using the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     * @param supplier The supplier
+     * @return The future
+     * @param <T> The type to return
+     * @param <D> The exception type
+     */
+    public static <T, D extends Throwable> CompletableFuture<T> supplyIOWithException(ExceptionThrowingSupplier<T, D> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return supplier.get();
+            } catch (Throwable throwable) {
+                throw new RuntimeException("Error while executing async I/O task", throwable);
+            }
+        }, IO_EXECUTOR);
+    }
+
+    /**
+     *
+     * Runs a blocking task (SQL, file, or HTTP) using the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     * @param supplier The supplier
+     * @return The future
+     * @param <T> The type to return
+     */
+    public static <T> CompletableFuture<T> supplyIO(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, IO_EXECUTOR);
+    }
+
+    /**
+     *
+     * Runs a blocking task (SQL, file, or HTTP) using the {@link UtilConcurrency#IO_EXECUTOR}
+     * <br>
+     * Any errors will log to {@link UtilLogger} if set
+     *
+     * @param runnable The runnable
+     * @return The future
+     */
+    public static CompletableFuture<Void> runIO(Runnable runnable) {
+        return CompletableFuture.runAsync(runnable, IO_EXECUTOR)
+                .exceptionally(throwable -> {
+                    UtilLogger.logger().ifPresent(logger -> logger.error("Error while executing async I/O task", throwable));
+                    return null;
+                });
+    }
+
+    /**
+     *
+     * Gets the number of tasks waiting in the {@link UtilConcurrency#SCHEDULED_EXECUTOR_SERVICE}
+     *
+     * @return The queue length
+     */
+    public static int getScheduledQueueSize() {
+        return ((ThreadPoolExecutor) SCHEDULED_EXECUTOR_SERVICE).getQueue().size();
+    }
+
+    /**
+     *
+     * Gets the number of threads currently running tasks in the {@link UtilConcurrency#SCHEDULED_EXECUTOR_SERVICE}
+     *
+     * @return The active thread count
+     */
+    public static int getScheduledActiveThreads() {
+        return ((ThreadPoolExecutor) SCHEDULED_EXECUTOR_SERVICE).getActiveCount();
+    }
+
     /**
      *
      * Runs a task asynchronously using the {@link UtilConcurrency#SCHEDULED_EXECUTOR_SERVICE}
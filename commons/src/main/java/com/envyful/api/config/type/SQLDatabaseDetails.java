@@ -1,7 +1,10 @@
 package com.envyful.api.config.type;
 
+import com.google.common.collect.Lists;
 import org.spongepowered.configurate.objectmapping.ConfigSerializable;
 
+import java.util.List;
+
 @ConfigSerializable
 public  class SQLDatabaseDetails {
 
@@ -19,6 +22,11 @@ public  class SQLDatabaseDetails {
     private String connectionUrl = null;
     private long maxLifeTimeSeconds = 30;
     private boolean disableSSL = false;
+    private boolean rewriteBatchedStatements = true;
+    private long connectionTimeoutSeconds = 30;
+    private long leakDetectionThresholdSeconds = 60;
+    private AdaptivePoolSize adaptivePoolSize = new AdaptivePoolSize();
+    private List<Replica> replicas = Lists.newArrayList();
 
     public SQLDatabaseDetails() {
     }
@@ -77,4 +85,116 @@ public  class SQLDatabaseDetails {
     public boolean isDisableSSL() {
         return this.disableSSL;
     }
+
+    public boolean isRewriteBatchedStatements() {
+        return this.rewriteBatchedStatements;
+    }
+
+    public long getConnectionTimeoutSeconds() {
+        return this.connectionTimeoutSeconds;
+    }
+
+    public long getLeakDetectionThresholdSeconds() {
+        return this.leakDetectionThresholdSeconds;
+    }
+
+    public AdaptivePoolSize getAdaptivePoolSize() {
+        return this.adaptivePoolSize;
+    }
+
+    public List<Replica> getReplicas() {
+        return this.replicas;
+    }
+
+    /**
+     *
+     * The settings of the {@link com.envyful.api.database.impl.PoolSizeController},
+     * which resizes the pool between the min and max pool size based on how long threads wait for a connection
+     *
+     */
+    @ConfigSerializable
+    public static class AdaptivePoolSize {
+
+        private boolean enabled = false;
+        private int minPoolSize = 5;
+        private int maxPoolSize = 50;
+        private int step = 2;
+        private long growWaitMillis = 20;
+        private long shrinkWaitMillis = 1;
+        private int sustainedChecks = 3;
+        private long checkIntervalSeconds = 15;
+
+        public AdaptivePoolSize() {
+        }
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public int getMinPoolSize() {
+            return this.minPoolSize;
+        }
+
+        public int getMaxPoolSize() {
+            return this.maxPoolSize;
+        }
+
+        public int getStep() {
+            return this.step;
+        }
+
+        public long getGrowWaitMillis() {
+            return this.growWaitMillis;
+        }
+
+        public long getShrinkWaitMillis() {
+            return this.shrinkWaitMillis;
+        }
+
+        public int getSustainedChecks() {
+            return this.sustainedChecks;
+        }
+
+        public long getCheckIntervalSeconds() {
+            return this.checkIntervalSeconds;
+        }
+    }
+
+    /**
+     *
+     * A read replica of the database, which uses the same username, password and database name as the primary
+     *
+     */
+    @ConfigSerializable
+    public static class Replica {
+
+        private String ip = "0.0.0.0";
+        private int port = 3306;
+        private String connectionUrl = null;
+        private int maxPoolSize = 10;
+
+        public Replica() {
+        }
+
+        public Replica(String ip, int port) {
+            this.ip = ip;
+            this.port = port;
+        }
+
+        public String getIp() {
+            return this.ip;
+        }
+
+        public int getPort() {
+            return this.port;
+        }
+
+        public String getConnectionUrl() {
+            return this.connectionUrl;
+        }
+
+        public int getMaxPoolSize() {
+            return this.maxPoolSize;
+        }
+    }
 }
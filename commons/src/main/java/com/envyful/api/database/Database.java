@@ -3,9 +3,12 @@ package com.envyful.api.database;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  *
@@ -27,9 +30,28 @@ public interface Database {
         throw new UnsupportedOperationException("Not an SQL database");
     }
 
+    /**
+     *
+     * Gets an SQL connection for queries that only read, which is taken from a read replica if the database has any
+     * and otherwise from the primary like {@link #getConnection()}.
+     * <br>
+     * Replicas can lag behind the primary, so reads that need to see a write that was just made should use
+     * {@link #getConnection()} instead
+     *
+     * @return An SQL Connection
+     * @throws SQLException An error if there's no connections
+     * @throws UnsupportedOperationException If this isn't an SQL database
+     */
+    default Connection getReadConnection()
+            throws SQLException,UnsupportedOperationException {
+        return this.getConnection();
+    }
+
     /**
      *
      * Gets the Jedis connection from the database if available
+     * <br>
+     * For Redis this is a shared, thread safe connection that shouldn't be closed by the caller
      *
      * @return The jedis connection
      * @throws UnsupportedOperationException If this database isn't redis lol
@@ -39,6 +61,22 @@ public interface Database {
         throw new UnsupportedOperationException("Not a redis database");
     }
 
+    /**
+     *
+     * Queues the commands on a connection with auto flushing disabled, then sends them all in one write
+     * so that they only cost one round trip.
+     * <br>
+     * The results of each command can be read from the futures returned when queueing it
+     *
+     * @param commands The consumer queueing the commands
+     * @return A future completing once all the queued commands have had their responses
+     * @throws UnsupportedOperationException If this database isn't redis
+     */
+    default CompletableFuture<Void> pipeline(Consumer<RedisAsyncCommands<String, String>> commands)
+            throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Not a redis database");
+    }
+
     /**
      *
      * Gets the client
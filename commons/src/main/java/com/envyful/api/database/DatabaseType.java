@@ -1,10 +1,12 @@
 package com.envyful.api.database;
 
+import com.envyful.api.database.impl.SimpleEmbeddedDatabase;
 import com.envyful.api.database.impl.SimpleHikariDatabase;
 import com.envyful.api.database.impl.SimpleLettuceDatabase;
 import com.google.common.collect.Maps;
 import org.spongepowered.configurate.ConfigurationNode;
 
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -30,6 +32,17 @@ public enum DatabaseType {
             );
         }
     },
+    EMBEDDED("embedded") {
+        @Override
+        public Database getDatabase(ConfigurationNode node) {
+            String id = node.node("id").getString();
+            String file = node.node("file").getString("database");
+            int poolSize = node.node("pool-size").getInt(4);
+            int writeDelay = node.node("write-delay").getInt(0);
+
+            return new SimpleEmbeddedDatabase(id, Paths.get(file), poolSize, writeDelay);
+        }
+    },
     REDIS("redis") {
         @Override
         public Database getDatabase(ConfigurationNode node) {
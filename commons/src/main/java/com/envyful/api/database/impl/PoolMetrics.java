@@ -0,0 +1,276 @@
+package com.envyful.api.database.impl;
+
+import com.envyful.api.concurrency.UtilLogger;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ *
+ * Collects the metrics of a Hikari connection pool: the active, idle and pending connection counts,
+ * histograms of how long it takes to get a connection and how long connections are held, and leak events.
+ * <br>
+ * A leak is counted when a connection is returned after being held for longer than the leak detection threshold,
+ * which is the same rule Hikari uses to log its own leak warnings
+ *
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private final long leakThresholdMillis;
+    private final Histogram acquireNanos = new Histogram();
+    private final Histogram usageMillis = new Histogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final List<LongConsumer> leakListeners = new CopyOnWriteArrayList<>();
+
+    private volatile PoolStats poolStats;
+
+    public PoolMetrics(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new Tracker();
+    }
+
+    public int getActiveConnections() {
+        return this.poolStats == null ? 0 : this.poolStats.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        return this.poolStats == null ? 0 : this.poolStats.getIdleConnections();
+    }
+
+    public int getTotalConnections() {
+        return this.poolStats == null ? 0 : this.poolStats.getTotalConnections();
+    }
+
+    /**
+     *
+     * Gets the number of threads waiting for a connection
+     *
+     * @return The number of waiting threads
+     */
+    public int getPendingThreads() {
+        return this.poolStats == null ? 0 : this.poolStats.getPendingThreads();
+    }
+
+    public int getMaxConnections() {
+        return this.poolStats == null ? 0 : this.poolStats.getMaxConnections();
+    }
+
+    /**
+     *
+     * Gets the histogram of how long it took to get a connection from the pool, in nanoseconds
+     *
+     * @return The acquire time histogram
+     */
+    public Histogram getAcquireNanos() {
+        return this.acquireNanos;
+    }
+
+    /**
+     *
+     * Gets the histogram of how long connections were held before being returned to the pool, in milliseconds
+     *
+     * @return The usage time histogram
+     */
+    public Histogram getUsageMillis() {
+        return this.usageMillis;
+    }
+
+    /**
+     *
+     * Gets the number of times a thread gave up waiting for a connection
+     *
+     * @return The number of timeouts
+     */
+    public long getTimeouts() {
+        return this.timeouts.sum();
+    }
+
+    public long getLeaks() {
+        return this.leaks.sum();
+    }
+
+    public long getConnectionsCreated() {
+        return this.created.sum();
+    }
+
+    /**
+     *
+     * Adds a listener called with how long the connection was held for every time a leak is detected
+     *
+     * @param listener The listener
+     */
+    public void addLeakListener(LongConsumer listener) {
+        this.leakListeners.add(listener);
+    }
+
+    @Override
+    public String toString() {
+        var acquire = this.acquireNanos.snapshot();
+        var usage = this.usageMillis.snapshot();
+
+        return "active=" + this.getActiveConnections() + ", idle=" + this.getIdleConnections() +
+                ", pending=" + this.getPendingThreads() + ", max=" + this.getMaxConnections() +
+                ", acquireP95=" + TimeUnit.NANOSECONDS.toMillis(acquire.getPercentile(0.95)) + "ms" +
+                ", usageP95=" + usage.getPercentile(0.95) + "ms" +
+                ", timeouts=" + this.getTimeouts() + ", leaks=" + this.getLeaks();
+    }
+
+    private class Tracker implements IMetricsTracker {
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            created.increment();
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireNanos.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMillis.record(elapsedBorrowedMillis);
+
+            if (leakThresholdMillis > 0 && elapsedBorrowedMillis >= leakThresholdMillis) {
+                leaks.increment();
+
+                for (var listener : leakListeners) {
+                    try {
+                        listener.accept(elapsedBorrowedMillis);
+                    } catch (Exception e) {
+                        UtilLogger.logger().ifPresent(logger -> logger.error("Error in connection leak listener", e));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+
+    /**
+     *
+     * A lock free histogram with power of two buckets, so percentiles are accurate to within a factor of two
+     *
+     */
+    public static class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        private final LongAdder[] counts = new LongAdder[BUCKETS];
+        private final LongAdder sum = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.counts[i] = new LongAdder();
+            }
+        }
+
+        public void record(long value) {
+            value = Math.max(0, value);
+            this.counts[BUCKETS - Long.numberOfLeadingZeros(value)].increment();
+            this.sum.add(value);
+        }
+
+        /**
+         *
+         * Copies the current counts, which can be compared with a later snapshot using {@link Snapshot#since(Snapshot)}
+         *
+         * @return The snapshot
+         */
+        public Snapshot snapshot() {
+            var counts = new long[BUCKETS];
+
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = this.counts[i].sum();
+            }
+
+            return new Snapshot(counts, this.sum.sum());
+        }
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long sum;
+        private final long count;
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long count = 0;
+
+            for (var bucket : counts) {
+                count += bucket;
+            }
+
+            this.count = count;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public double getMean() {
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        /**
+         *
+         * Gets the upper bound of the bucket containing the percentile
+         *
+         * @param percentile The percentile between 0 and 1
+         * @return The value
+         */
+        public long getPercentile(double percentile) {
+            if (this.count == 0) {
+                return 0;
+            }
+
+            long target = (long) Math.ceil(this.count * Math.min(1, Math.max(0, percentile)));
+            long seen = 0;
+
+            for (int i = 0; i < this.counts.length; i++) {
+                seen += this.counts[i];
+
+                if (seen >= Math.max(1, target)) {
+                    return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         *
+         * Gets the values recorded between the earlier snapshot and this one
+         *
+         * @param earlier The earlier snapshot
+         * @return The difference
+         */
+        public Snapshot since(Snapshot earlier) {
+            var counts = new long[this.counts.length];
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.counts[i] - earlier.counts[i];
+            }
+
+            return new Snapshot(counts, this.sum - earlier.sum);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.envyful.api.database.impl;
+
+import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.concurrency.UtilLogger;
+import com.zaxxer.hikari.HikariConfigMXBean;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Grows or shrinks a Hikari pool's maximum size within the configured bounds based on how long threads have been
+ * waiting for a connection.
+ * <br>
+ * Every check the 95th percentile acquire time since the previous check is compared against the thresholds.
+ * The pool grows by the step once the wait has been above the grow threshold (or a thread timed out) for the
+ * configured number of checks in a row, and shrinks by the step once the wait has been below the shrink threshold
+ * with less than half the connections in use for as many checks
+ *
+ */
+public class PoolSizeController {
+
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final int step;
+    private final long growWaitNanos;
+    private final long shrinkWaitNanos;
+    private final int sustainedChecks;
+    private final long checkIntervalMillis;
+
+    private HikariConfigMXBean config;
+    private PoolMetrics metrics;
+    private ScheduledFuture<?> task;
+    private PoolMetrics.Snapshot lastAcquire;
+    private long lastTimeouts;
+    private int growChecks = 0;
+    private int shrinkChecks = 0;
+
+    private PoolSizeController(Builder builder) {
+        this.minPoolSize = builder.minPoolSize;
+        this.maxPoolSize = builder.maxPoolSize;
+        this.step = builder.step;
+        this.growWaitNanos = TimeUnit.MILLISECONDS.toNanos(builder.growWaitMillis);
+        this.shrinkWaitNanos = TimeUnit.MILLISECONDS.toNanos(builder.shrinkWaitMillis);
+        this.sustainedChecks = builder.sustainedChecks;
+        this.checkIntervalMillis = builder.checkIntervalMillis;
+    }
+
+    /**
+     *
+     * Starts checking the pool on the {@link UtilConcurrency#SCHEDULED_EXECUTOR_SERVICE}
+     *
+     * @param config The pool's runtime config
+     * @param metrics The pool's metrics
+     */
+    public synchronized void start(HikariConfigMXBean config, PoolMetrics metrics) {
+        if (this.task != null) {
+            throw new IllegalStateException("Controller has already been started");
+        }
+
+        this.config = config;
+        this.metrics = metrics;
+        this.lastAcquire = metrics.getAcquireNanos().snapshot();
+        this.lastTimeouts = metrics.getTimeouts();
+        this.task = UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE.scheduleAtFixedRate(this::check,
+                this.checkIntervalMillis, this.checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (this.task != null) {
+            this.task.cancel(false);
+        }
+    }
+
+    synchronized void check() {
+        var acquire = this.metrics.getAcquireNanos().snapshot();
+        var window = acquire.since(this.lastAcquire);
+        long timeouts = this.metrics.getTimeouts();
+        boolean timedOut = timeouts > this.lastTimeouts;
+        long waitNanos = window.getPercentile(0.95);
+        int size = this.config.getMaximumPoolSize();
+
+        this.lastAcquire = acquire;
+        this.lastTimeouts = timeouts;
+
+        if (timedOut || waitNanos >= this.growWaitNanos) {
+            ++this.growChecks;
+            this.shrinkChecks = 0;
+        } else if (waitNanos <= this.shrinkWaitNanos && this.metrics.getActiveConnections() * 2 < size) {
+            ++this.shrinkChecks;
+            this.growChecks = 0;
+        } else {
+            this.growChecks = 0;
+            this.shrinkChecks = 0;
+        }
+
+        if (this.growChecks >= this.sustainedChecks) {
+            this.resize(size, Math.min(this.maxPoolSize, size + this.step), waitNanos);
+        } else if (this.shrinkChecks >= this.sustainedChecks) {
+            this.resize(size, Math.max(this.minPoolSize, size - this.step), waitNanos);
+        }
+    }
+
+    private void resize(int size, int newSize, long waitNanos) {
+        this.growChecks = 0;
+        this.shrinkChecks = 0;
+
+        if (newSize == size) {
+            return;
+        }
+
+        this.config.setMaximumPoolSize(newSize);
+
+        if (this.config.getMinimumIdle() > newSize) {
+            this.config.setMinimumIdle(newSize);
+        }
+
+        UtilLogger.logger().ifPresent(logger -> logger.info("Resized connection pool " + this.config.getPoolName() +
+                " from " + size + " to " + newSize + " (p95 wait " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms)"));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private int minPoolSize = 5;
+        private int maxPoolSize = 50;
+        private int step = 2;
+        private long growWaitMillis = 20;
+        private long shrinkWaitMillis = 1;
+        private int sustainedChecks = 3;
+        private long checkIntervalMillis = TimeUnit.SECONDS.toMillis(15);
+
+        private Builder() {}
+
+        /**
+         *
+         * Sets the bounds the pool size is kept within
+         *
+         * @param minPoolSize The smallest the pool can shrink to
+         * @param maxPoolSize The largest the pool can grow to
+         * @return The builder
+         */
+        public Builder bounds(int minPoolSize, int maxPoolSize) {
+            this.minPoolSize = Math.max(1, minPoolSize);
+            this.maxPoolSize = Math.max(this.minPoolSize, maxPoolSize);
+            return this;
+        }
+
+        public Builder step(int step) {
+            this.step = Math.max(1, step);
+            return this;
+        }
+
+        /**
+         *
+         * Sets the 95th percentile wait for a connection above which the pool grows
+         *
+         * @param growWaitMillis The wait in milliseconds
+         * @return The builder
+         */
+        public Builder growWait(long growWaitMillis) {
+            this.growWaitMillis = growWaitMillis;
+            return this;
+        }
+
+        /**
+         *
+         * Sets the 95th percentile wait for a connection below which the pool may shrink
+         *
+         * @param shrinkWaitMillis The wait in milliseconds
+         * @return The builder
+         */
+        public Builder shrinkWait(long shrinkWaitMillis) {
+            this.shrinkWaitMillis = shrinkWaitMillis;
+            return this;
+        }
+
+        /**
+         *
+         * Sets how many checks in a row have to agree before the pool is resized
+         *
+         * @param sustainedChecks The number of checks
+         * @return The builder
+         */
+        public Builder sustainedChecks(int sustainedChecks) {
+            this.sustainedChecks = Math.max(1, sustainedChecks);
+            return this;
+        }
+
+        public Builder checkInterval(long checkInterval, TimeUnit timeUnit) {
+            this.checkIntervalMillis = timeUnit.toMillis(checkInterval);
+            return this;
+        }
+
+        public PoolSizeController build() {
+            return new PoolSizeController(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.envyful.api.database.impl;
+
+import com.envyful.api.database.Database;
+import com.zaxxer.hikari.HikariConfig;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Embedded H2 implementation of the {@link Database} interface, storing the database in a file and running it
+ * in the server's process so that queries don't need a network round trip.
+ * <br>
+ * The database runs in H2's MySQL compatibility mode so the same queries work with {@link com.envyful.api.database.sql.UtilSql},
+ * the {@link com.envyful.api.player.save.impl.SQLSaveManager} and the leaderboards.
+ * H2's store is append only, so like a write ahead log commits are appended to the file rather than rewriting
+ * pages on every commit.
+ * <br>
+ * By default every commit is written to the file before it returns. A write delay lets commits be written out in
+ * the background instead, which is faster, but commits made within the delay before a crash are lost even though
+ * they were acknowledged
+ *
+ */
+public class SimpleEmbeddedDatabase extends SimpleHikariDatabase {
+
+    public SimpleEmbeddedDatabase(String name, Path file) {
+        this(name, file, 4, 0);
+    }
+
+    /**
+     *
+     * Opens the database, creating the file if it doesn't exist
+     *
+     * @param name The pool name
+     * @param file The database file, without the .mv.db extension
+     * @param maxConnections The max number of connections
+     * @param writeDelayMillis The longest a commit can wait before it's written to the file, where anything above 0
+     *                         risks losing acknowledged commits on a crash
+     */
+    public SimpleEmbeddedDatabase(String name, Path file, int maxConnections, int writeDelayMillis) {
+        super(createConfig(name, file, maxConnections, writeDelayMillis), null);
+    }
+
+    private static HikariConfig createConfig(String name, Path file, int maxConnections, int writeDelayMillis) {
+        HikariConfig config = new HikariConfig();
+
+        config.setPoolName(name);
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:file:" + file.toAbsolutePath() +
+                ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE" +
+                ";DB_CLOSE_ON_EXIT=FALSE;WRITE_DELAY=" + Math.max(0, writeDelayMillis));
+        config.setMaximumPoolSize(Math.max(1, maxConnections));
+        config.setMinimumIdle(1);
+        config.setMaxLifetime(0);
+        config.setConnectionTimeout(TimeUnit.SECONDS.toMillis(30));
+        config.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(60));
+
+        return config;
+    }
+}
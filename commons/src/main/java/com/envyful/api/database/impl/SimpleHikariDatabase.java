@@ -1,5 +1,6 @@
 package com.envyful.api.database.impl;
 
+import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.config.type.SQLDatabaseDetails;
 import com.envyful.api.database.Database;
 import com.zaxxer.hikari.HikariConfig;
@@ -7,7 +8,10 @@ import com.zaxxer.hikari.HikariDataSource;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -17,9 +21,13 @@ import java.util.concurrent.TimeUnit;
 public class SimpleHikariDatabase implements Database {
 
     private final HikariDataSource hikari;
+    private final PoolMetrics metrics;
+    private final PoolSizeController sizeController;
+    private final List<HikariDataSource> replicas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
 
     public SimpleHikariDatabase(SQLDatabaseDetails details) {
-        this(details.getConnectionUrl(),
+        this(createConfig(details.getConnectionUrl(),
                 details.getPoolName(),
                 details.getIp(),
                 details.getPort(),
@@ -28,8 +36,28 @@ public class SimpleHikariDatabase implements Database {
                 details.getDatabase(),
                 details.getMaxPoolSize(),
                 details.getMaxLifeTimeSeconds(),
-                details.isDisableSSL()
-        );
+                details.isDisableSSL(),
+                details.isRewriteBatchedStatements(),
+                details.getConnectionTimeoutSeconds(),
+                details.getLeakDetectionThresholdSeconds()
+        ), createSizeController(details.getAdaptivePoolSize()));
+
+        for (var replica : details.getReplicas()) {
+            this.addReplica(createConfig(replica.getConnectionUrl(),
+                    details.getPoolName() + "-replica-" + this.replicas.size(),
+                    replica.getIp(),
+                    replica.getPort(),
+                    details.getUsername(),
+                    details.getPassword(),
+                    details.getDatabase(),
+                    replica.getMaxPoolSize(),
+                    details.getMaxLifeTimeSeconds(),
+                    details.isDisableSSL(),
+                    details.isRewriteBatchedStatements(),
+                    details.getConnectionTimeoutSeconds(),
+                    details.getLeakDetectionThresholdSeconds()
+            ));
+        }
     }
 
     public SimpleHikariDatabase(String name, String ip,
@@ -43,6 +71,52 @@ public class SimpleHikariDatabase implements Database {
                                 String password, String database,
                                 int maxConnections, long maxLifeTime,
                                 boolean disableSSL) {
+        this(connectionUrl, name, ip, port, username, password, database, maxConnections, maxLifeTime, disableSSL, true);
+    }
+
+    /**
+     *
+     * Creates the connection pool
+     * <br>
+     * When rewriteBatchedStatements is true the MySQL driver sends a batch of inserts as multi-row inserts,
+     * and other batched statements as multi-statement queries, instead of one round trip per row.
+     * The update counts of a rewritten insert batch are {@link java.sql.Statement#SUCCESS_NO_INFO}
+     *
+     */
+    public SimpleHikariDatabase(String connectionUrl, String name,
+                                String ip, int port, String username,
+                                String password, String database,
+                                int maxConnections, long maxLifeTime,
+                                boolean disableSSL, boolean rewriteBatchedStatements) {
+        this(createConfig(connectionUrl, name, ip, port, username, password, database, maxConnections, maxLifeTime,
+                disableSSL, rewriteBatchedStatements, 30, 60), null);
+    }
+
+    /**
+     *
+     * Creates the connection pool from the config, optionally resizing it with the controller
+     *
+     * @param config The pool config
+     * @param sizeController The size controller, or null to keep the pool at the configured size
+     */
+    public SimpleHikariDatabase(HikariConfig config, PoolSizeController sizeController) {
+        this.metrics = new PoolMetrics(config.getLeakDetectionThreshold());
+        config.setMetricsTrackerFactory(this.metrics);
+
+        this.hikari = new HikariDataSource(config);
+        this.sizeController = sizeController;
+
+        if (this.sizeController != null) {
+            this.sizeController.start(this.hikari, this.metrics);
+        }
+    }
+
+    private static HikariConfig createConfig(String connectionUrl, String name,
+                                             String ip, int port, String username,
+                                             String password, String database,
+                                             int maxConnections, long maxLifeTime,
+                                             boolean disableSSL, boolean rewriteBatchedStatements,
+                                             long connectionTimeout, long leakDetectionThreshold) {
         HikariConfig config = new HikariConfig();
 
         config.setMaximumPoolSize(Math.max(1, maxConnections));
@@ -69,16 +143,57 @@ public class SimpleHikariDatabase implements Database {
         config.addDataSourceProperty("cacheServerConfiguration", true);
         config.addDataSourceProperty("elideSetAutoCommits", true);
         config.addDataSourceProperty("useLocalSessionState", true);
+        config.addDataSourceProperty("rewriteBatchedStatements", rewriteBatchedStatements);
         config.addDataSourceProperty("characterEncoding","utf8");
         config.addDataSourceProperty("useUnicode","true");
         config.addDataSourceProperty("maxLifetime",
                 TimeUnit.SECONDS.toMillis(maxLifeTime));
         config.setMaxLifetime(TimeUnit.SECONDS.toMillis(maxLifeTime));
-        config.setConnectionTimeout(TimeUnit.SECONDS.toMillis(30));
-        config.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(60));
+        config.setConnectionTimeout(TimeUnit.SECONDS.toMillis(connectionTimeout));
+        config.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(leakDetectionThreshold));
         config.setConnectionTestQuery("/* Ping */ SELECT 1");
 
-        this.hikari = new HikariDataSource(config);
+        return config;
+    }
+
+    private static PoolSizeController createSizeController(SQLDatabaseDetails.AdaptivePoolSize settings) {
+        if (settings == null || !settings.isEnabled()) {
+            return null;
+        }
+
+        return PoolSizeController.builder()
+                .bounds(settings.getMinPoolSize(), settings.getMaxPoolSize())
+                .step(settings.getStep())
+                .growWait(settings.getGrowWaitMillis())
+                .shrinkWait(settings.getShrinkWaitMillis())
+                .sustainedChecks(settings.getSustainedChecks())
+                .checkInterval(settings.getCheckIntervalSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     *
+     * Adds a read replica pool, which {@link #getReadConnection()} takes connections from in turn with the other replicas
+     *
+     * @param config The replica's pool config
+     */
+    public void addReplica(HikariConfig config) {
+        config.setReadOnly(true);
+        this.replicas.add(new HikariDataSource(config));
+    }
+
+    public int getReplicaCount() {
+        return this.replicas.size();
+    }
+
+    /**
+     *
+     * Gets the metrics of the connection pool
+     *
+     * @return The pool metrics
+     */
+    public PoolMetrics getMetrics() {
+        return this.metrics;
     }
 
     @Override
@@ -86,8 +201,40 @@ public class SimpleHikariDatabase implements Database {
         return this.hikari.getConnection();
     }
 
+    /**
+     *
+     * Gets a connection from the next read replica, falling back to the primary if there are no replicas
+     * or the replica can't give a connection
+     *
+     * @return A read only connection
+     * @throws SQLException If the primary can't give a connection
+     */
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        if (this.replicas.isEmpty()) {
+            return this.getConnection();
+        }
+
+        var replica = this.replicas.get(Math.floorMod(this.nextReplica.getAndIncrement(), this.replicas.size()));
+
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error getting connection from replica " + replica.getPoolName() + ", using the primary", e));
+            return this.getConnection();
+        }
+    }
+
     @Override
     public void close() {
+        if (this.sizeController != null) {
+            this.sizeController.stop();
+        }
+
+        for (var replica : this.replicas) {
+            replica.close();
+        }
+
         this.hikari.close();
     }
 }
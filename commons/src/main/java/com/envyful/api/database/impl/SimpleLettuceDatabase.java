@@ -9,18 +9,36 @@ import com.google.common.collect.Maps;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.BiConsumer;
-
+import java.util.function.Consumer;
+
+/**
+ *
+ * Lettuce implementation of the {@link Database} interface
+ * <br>
+ * Normal commands share a single multiplexed connection from {@link #getRedis()}, which is thread safe and which
+ * closing does nothing. Commands that hold the connection's state, such as MULTI transactions or blocking pops,
+ * should use their own connection from {@link #newConnection()} instead. Pipelines are queued on a small set of
+ * separate connections with auto flushing disabled, so they don't delay the shared connection's commands
+ *
+ */
 public class SimpleLettuceDatabase implements Database {
 
+    private static final int MAX_IDLE_PIPELINE_CONNECTIONS = 2;
+
     private final RedisClient pool;
     private final RedisURI uri;
     private final StatefulRedisPubSubConnection<String, String>
@@ -29,6 +47,9 @@ public class SimpleLettuceDatabase implements Database {
             publishConnection;
     private final Map<String, List<BiConsumer<String, String>>>
             subscriptions = Maps.newConcurrentMap();
+    private final StatefulRedisConnection<String, String> connection;
+    private final StatefulRedisConnection<String, String> sharedConnection;
+    private final Queue<StatefulRedisConnection<String, String>> pipelineConnections = new ConcurrentLinkedQueue<>();
 
     public SimpleLettuceDatabase(RedisDatabaseDetails details) {
         this(details.getIp(), details.getPort(), details.getPassword());
@@ -43,6 +64,8 @@ public class SimpleLettuceDatabase implements Database {
         this.pool = RedisClient.create(this.uri);
         this.subscribeConnection = pool.connectPubSub();
         this.publishConnection = pool.connectPubSub();
+        this.connection = pool.connect();
+        this.sharedConnection = unclosable(this.connection);
 
         subscribeConnection.addListener(new RedisPubSubAdapter<>() {
             @Override
@@ -59,9 +82,93 @@ public class SimpleLettuceDatabase implements Database {
     @Override
     public StatefulRedisConnection<String, String> getRedis()
             throws UnsupportedOperationException {
+        return this.sharedConnection;
+    }
+
+    /**
+     *
+     * Opens a new connection which isn't shared, and which the caller has to close
+     *
+     * @return The new connection
+     */
+    public StatefulRedisConnection<String, String> newConnection() {
         return this.pool.connect();
     }
 
+    @Override
+    public CompletableFuture<Void> pipeline(Consumer<RedisAsyncCommands<String, String>> commands)
+            throws UnsupportedOperationException {
+        var polled = this.pipelineConnections.poll();
+
+        if (polled == null || !polled.isOpen()) {
+            polled = this.pool.connect();
+            polled.setAutoFlushCommands(false);
+        }
+
+        var connection = polled;
+        RuntimeException failure = null;
+        CompletableFuture<String> done;
+
+        try {
+            var async = connection.async();
+
+            try {
+                commands.accept(async);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            // Responses arrive in order, so this completes once every command queued before it has completed
+            done = async.ping().toCompletableFuture();
+            connection.flushCommands();
+        } catch (RuntimeException e) {
+            this.releasePipelineConnection(connection);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // The connection is only reused or closed once all of its replies have arrived
+        done.whenComplete((pong, throwable) -> this.releasePipelineConnection(connection));
+
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+
+        return done.thenApply(pong -> null);
+    }
+
+    private void releasePipelineConnection(StatefulRedisConnection<String, String> connection) {
+        if (this.pipelineConnections.size() < MAX_IDLE_PIPELINE_CONNECTIONS) {
+            this.pipelineConnections.add(connection);
+        } else {
+            connection.closeAsync();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StatefulRedisConnection<String, String> unclosable(StatefulRedisConnection<String, String> connection) {
+        return (StatefulRedisConnection<String, String>) Proxy.newProxyInstance(
+                SimpleLettuceDatabase.class.getClassLoader(),
+                new Class<?>[]{StatefulRedisConnection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "closeAsync":
+                            return CompletableFuture.completedFuture(null);
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
     @Override
     public RedisClient getClient() throws UnsupportedOperationException {
         return this.pool;
@@ -80,6 +187,12 @@ public class SimpleLettuceDatabase implements Database {
 
     @Override
     public void close() {
+        this.connection.close();
+
+        for (var connection : this.pipelineConnections) {
+            connection.close();
+        }
+
         this.pool.close();
     }
 
@@ -45,7 +45,7 @@ public class SQLLeaderboard {
             return longListPair.getY();
         }
 
-        try (Connection connection = this.database.getConnection();
+        try (Connection connection = this.database.getReadConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(this.getSQL())) {
             ResultSet resultSet = preparedStatement.executeQuery();
             int counter = 0;
@@ -0,0 +1,302 @@
+package com.envyful.api.database.sql;
+
+import com.envyful.api.database.Database;
+import com.envyful.api.type.ExceptionThrowingConsumer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ *
+ * A query whose SQL and parameter types are declared once, and whose parameters are then bound directly as
+ * primitives through a reusable {@link Binder} instead of allocating a {@link SqlType} per parameter.
+ * <br>
+ * The binder keeps its connection and {@link PreparedStatement} open until it is closed, so a hot path can run the
+ * same query many times without creating any objects of its own:
+ * <pre>{@code
+ * private static final PreparedQuery ADD_KILLS = PreparedQuery.builder()
+ *         .query("UPDATE stats SET kills = kills + ? WHERE uuid = ?;")
+ *         .parameters(PreparedQuery.Type.INT, PreparedQuery.Type.STRING)
+ *         .build();
+ *
+ * try (var binder = ADD_KILLS.open(database)) {
+ *     for (var kill : kills) {
+ *         binder.bindInt(1, kill.getAmount()).bindString(2, kill.getUuid()).addBatch();
+ *     }
+ *
+ *     binder.executeBatch();
+ * }
+ * }</pre>
+ *
+ */
+public class PreparedQuery {
+
+    private static final int MAX_PARAMETERS = 64;
+
+    private final String query;
+    private final Type[] parameters;
+    private final long allBound;
+
+    private PreparedQuery(Builder builder) {
+        this.query = builder.query;
+        this.parameters = builder.parameters;
+        this.allBound = this.parameters.length == MAX_PARAMETERS ? -1L : (1L << this.parameters.length) - 1;
+    }
+
+    public String getQuery() {
+        return this.query;
+    }
+
+    public int getParameterCount() {
+        return this.parameters.length;
+    }
+
+    /**
+     *
+     * Takes a connection from the database and prepares the query on it.
+     * The connection is returned to the database when the binder is closed
+     *
+     * @param database The database
+     * @return The binder
+     * @throws SQLException If the query couldn't be prepared
+     */
+    public Binder open(Database database) throws SQLException {
+        var connection = database.getConnection();
+
+        try {
+            return new Binder(this, connection, connection.prepareStatement(this.query), true);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     *
+     * Prepares the query on the given connection, which is left open when the binder is closed
+     *
+     * @param connection The connection
+     * @return The binder
+     * @throws SQLException If the query couldn't be prepared
+     */
+    public Binder open(Connection connection) throws SQLException {
+        return new Binder(this, connection, connection.prepareStatement(this.query), false);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     *
+     * The types a parameter can be declared as
+     *
+     */
+    public enum Type {
+
+        INT,
+        LONG,
+        DOUBLE,
+        FLOAT,
+        BOOLEAN,
+        STRING,
+        TIMESTAMP,
+
+        ;
+
+    }
+
+    /**
+     *
+     * Binds parameters to the prepared statement and runs it. The bound parameters are cleared after every
+     * execution or batch, and running it before all of them have been bound throws an {@link IllegalStateException}
+     * <br>
+     * A binder is not thread safe
+     *
+     */
+    public static class Binder implements AutoCloseable {
+
+        private final PreparedQuery query;
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final boolean ownsConnection;
+
+        private long bound = 0;
+
+        private Binder(PreparedQuery query, Connection connection, PreparedStatement statement, boolean ownsConnection) {
+            this.query = query;
+            this.connection = connection;
+            this.statement = statement;
+            this.ownsConnection = ownsConnection;
+        }
+
+        public Binder bindInt(int parameter, int value) throws SQLException {
+            this.statement.setInt(this.check(parameter, Type.INT), value);
+            return this;
+        }
+
+        public Binder bindLong(int parameter, long value) throws SQLException {
+            this.statement.setLong(this.check(parameter, Type.LONG), value);
+            return this;
+        }
+
+        public Binder bindDouble(int parameter, double value) throws SQLException {
+            this.statement.setDouble(this.check(parameter, Type.DOUBLE), value);
+            return this;
+        }
+
+        public Binder bindFloat(int parameter, float value) throws SQLException {
+            this.statement.setFloat(this.check(parameter, Type.FLOAT), value);
+            return this;
+        }
+
+        public Binder bindBoolean(int parameter, boolean value) throws SQLException {
+            this.statement.setBoolean(this.check(parameter, Type.BOOLEAN), value);
+            return this;
+        }
+
+        public Binder bindString(int parameter, String value) throws SQLException {
+            this.statement.setString(this.check(parameter, Type.STRING), value);
+            return this;
+        }
+
+        public Binder bindTimestamp(int parameter, Instant value) throws SQLException {
+            this.statement.setTimestamp(this.check(parameter, Type.TIMESTAMP), Timestamp.from(value));
+            return this;
+        }
+
+        /**
+         *
+         * Runs the query as an update with the bound parameters
+         *
+         * @return The number of rows updated
+         * @throws SQLException If an error occurs running the update
+         */
+        public int executeUpdate() throws SQLException {
+            this.checkAllBound();
+            this.bound = 0;
+            return this.statement.executeUpdate();
+        }
+
+        /**
+         *
+         * Adds the bound parameters to the batch
+         *
+         * @return The binder
+         * @throws SQLException If an error occurs adding the batch
+         */
+        public Binder addBatch() throws SQLException {
+            this.checkAllBound();
+            this.bound = 0;
+            this.statement.addBatch();
+            return this;
+        }
+
+        /**
+         *
+         * Sends all the batched parameters
+         *
+         * @return The update counts of each batched row
+         * @throws SQLException If an error occurs running the batch
+         */
+        public int[] executeBatch() throws SQLException {
+            return this.statement.executeBatch();
+        }
+
+        /**
+         *
+         * Runs the query with the bound parameters and passes each row to the consumer
+         *
+         * @param consumer The consumer called for each row
+         * @return The number of rows read
+         * @throws SQLException If an error occurs running the query
+         */
+        public long executeQuery(ExceptionThrowingConsumer<ResultSet, SQLException> consumer) throws SQLException {
+            this.checkAllBound();
+            this.bound = 0;
+            long rows = 0;
+
+            try (var resultSet = this.statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(resultSet);
+                    ++rows;
+                }
+            }
+
+            return rows;
+        }
+
+        private int check(int parameter, Type type) {
+            if (parameter < 1 || parameter > this.query.parameters.length) {
+                throw new IllegalArgumentException("Parameter " + parameter + " is out of range for " + this.query.query);
+            }
+
+            if (this.query.parameters[parameter - 1] != type) {
+                throw new IllegalArgumentException("Parameter " + parameter + " is declared as " +
+                        this.query.parameters[parameter - 1] + " not " + type);
+            }
+
+            this.bound |= 1L << (parameter - 1);
+            return parameter;
+        }
+
+        private void checkAllBound() {
+            if (this.bound != this.query.allBound) {
+                throw new IllegalStateException("Not all parameters are bound for " + this.query.query);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                this.statement.close();
+            } finally {
+                if (this.ownsConnection) {
+                    this.connection.close();
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private String query;
+        private Type[] parameters = new Type[0];
+
+        private Builder() {}
+
+        public Builder query(String query) {
+            this.query = query;
+            return this;
+        }
+
+        /**
+         *
+         * Declares the types of the parameters in the order they appear in the query
+         *
+         * @param parameters The parameter types
+         * @return The builder
+         */
+        public Builder parameters(Type... parameters) {
+            this.parameters = Arrays.copyOf(parameters, parameters.length);
+            return this;
+        }
+
+        public PreparedQuery build() {
+            if (this.query == null) {
+                throw new IllegalArgumentException("Query cannot be null");
+            }
+
+            if (this.parameters.length > MAX_PARAMETERS) {
+                throw new IllegalArgumentException("A prepared query can have at most " + MAX_PARAMETERS + " parameters");
+            }
+
+            return new PreparedQuery(this);
+        }
+    }
+}
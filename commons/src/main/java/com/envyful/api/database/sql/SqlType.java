@@ -25,6 +25,17 @@ public interface SqlType {
      */
     void add(int parameter, PreparedStatement statement) throws SQLException;
 
+    /**
+     *
+     * Gets an estimate of the most bytes the value takes up when it's sent to the database,
+     * used to keep multi-row statements under the server's max packet size
+     *
+     * @return The estimated size in bytes
+     */
+    default int estimateSize() {
+        return 16;
+    }
+
     /**
      *
      * Gets an integer type
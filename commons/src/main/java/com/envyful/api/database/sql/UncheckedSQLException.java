@@ -0,0 +1,23 @@
+package com.envyful.api.database.sql;
+
+import java.sql.SQLException;
+
+/**
+ *
+ * Wraps an {@link SQLException} thrown while reading a stream of rows from {@link UtilSql#stream},
+ * or while writing a batch of saves from a {@link com.envyful.api.player.save.SaveManager#saveAll(java.util.List)}
+ *
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 6316387312174867129L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -8,15 +8,26 @@ import com.envyful.api.type.ExceptionThrowingConsumer;
 import com.google.common.collect.Lists;
 import com.mysql.cj.jdbc.Driver;
 
+import javax.sql.RowSetMetaData;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  *
@@ -25,6 +36,22 @@ import java.util.function.Function;
  */
 public class UtilSql {
 
+    /**
+     *
+     * The fetch size that streams rows from the database instead of reading the whole result up front.
+     * <br>
+     * MySQL and MariaDB are given {@link Integer#MIN_VALUE}, which streams one row at a time, and other
+     * databases are given a fetch size of {@link #STREAMING_FETCH_ROWS}
+     *
+     */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final int STREAMING_FETCH_ROWS = 1000;
+    private static final ThreadLocal<Boolean> PRIMARY_READS = ThreadLocal.withInitial(() -> false);
+    private static final int MAX_STATEMENT_PARAMETERS = 65535;
+    private static final long DEFAULT_MAX_PACKET_BYTES = 4 * 1024 * 1024;
+    private static final int UPSERT_PACKET_HEADROOM = 1024;
+
     private UtilSql() {
         throw new UnsupportedOperationException("Static utility class");
     }
@@ -80,8 +107,66 @@ public class UtilSql {
      * @return The int after running
      */
     public static <T> int[] executeBatchUpdate(Database database, String query, List<T> data, Function<T, List<SqlType>> parsing) {
-        try (var connection = database.getConnection();
-             var preparedStatement = connection.prepareStatement(query)) {
+        return executeBatchUpdate(database, query, data, parsing, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     *
+     * Executes a batch query provided as an update {@link PreparedStatement#executeBatch()}
+     * on a single connection, sending the batch every time it reaches the max batch size.
+     * <br>
+     * If transactional is true all the batches are committed together and rolled back if any of them fail
+     * <br>
+     * Any errors will log to {@link UtilLogger} if set
+     *
+     * @param database The database to query
+     * @param query The query
+     * @param data The data to add
+     * @param parsing The converter from the data to the parameters
+     * @param maxBatchSize The max number of rows sent in a single batch
+     * @param transactional If the batches should be run in a single transaction
+     * @return The update counts for each row
+     */
+    public static <T> int[] executeBatchUpdate(Database database, String query, List<T> data, Function<T, List<SqlType>> parsing,
+                                               int maxBatchSize, boolean transactional) {
+        try (var connection = database.getConnection()) {
+            return executeBatchUpdate(connection, query, data, parsing, maxBatchSize, transactional);
+        } catch (SQLException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error executing SQL (" + query + ")", e));
+        }
+
+        return new int[0];
+    }
+
+    /**
+     *
+     * Executes a batch query provided as an update {@link PreparedStatement#executeBatch()}
+     * using the given connection, sending the batch every time it reaches the max batch size.
+     * <br>
+     * If transactional is true all the batches are committed together and rolled back if any of them fail.
+     * The connection is not closed by this method
+     *
+     * @param connection The connection to use
+     * @param query The query
+     * @param data The data to add
+     * @param parsing The converter from the data to the parameters
+     * @param maxBatchSize The max number of rows sent in a single batch
+     * @param transactional If the batches should be run in a single transaction
+     * @return The update counts for each row
+     * @throws SQLException If an error occurs running the batch
+     */
+    public static <T> int[] executeBatchUpdate(Connection connection, String query, List<T> data, Function<T, List<SqlType>> parsing,
+                                               int maxBatchSize, boolean transactional) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+
+        if (transactional) {
+            connection.setAutoCommit(false);
+        }
+
+        try (var preparedStatement = connection.prepareStatement(query)) {
+            int[] results = new int[data.size()];
+            int batched = 0;
+            int sent = 0;
 
             for (var datum : data) {
                 var sqlTypes = parsing.apply(datum);
@@ -91,35 +176,228 @@ public class UtilSql {
                 }
 
                 preparedStatement.addBatch();
+
+                if (++batched >= maxBatchSize) {
+                    sent = copyResults(preparedStatement.executeBatch(), results, sent);
+                    batched = 0;
+                }
+            }
+
+            if (batched > 0) {
+                copyResults(preparedStatement.executeBatch(), results, sent);
+            }
+
+            if (transactional) {
+                connection.commit();
             }
 
-            return preparedStatement.executeBatch();
+            return results;
         } catch (SQLException e) {
-            UtilLogger.logger().ifPresent(logger -> logger.error("Error executing SQL (" + query + ")", e));
+            if (transactional) {
+                connection.rollback();
+            }
+
+            throw e;
+        } finally {
+            if (transactional) {
+                connection.setAutoCommit(autoCommit);
+            }
         }
+    }
 
-        return new int[0];
+    private static int copyResults(int[] batchResults, int[] results, int offset) {
+        System.arraycopy(batchResults, 0, results, offset, Math.min(batchResults.length, results.length - offset));
+        return offset + batchResults.length;
     }
 
     /**
      *
-     * Executes the query provided as an update {@link PreparedStatement#executeQuery()}
+     * Inserts the rows as multi-row {@code INSERT ... VALUES (...), (...) ON DUPLICATE KEY UPDATE} statements
+     * on a single connection, splitting them so that each statement stays under the max packet size.
+     * <br>
+     * If the max packet size is 0 or less the server's max_allowed_packet is used, or 4MB if the database isn't MySQL.
+     * If transactional is true all the statements are committed together and rolled back if any of them fail.
+     * The connection is not closed by this method
+     *
+     * @param connection The connection to use
+     * @param table The table
+     * @param columns The columns, in the order the converter gives their values
+     * @param updateColumns The columns updated when the row already exists, or empty to ignore existing rows
+     * @param data The data to add
+     * @param parsing The converter from the data to the parameters
+     * @param maxPacketBytes The max size of a single statement in bytes
+     * @param transactional If the statements should be run in a single transaction
+     * @return The sum of the affected rows, where an inserted row counts as 1 and an updated row as 2
+     * @throws SQLException If an error occurs running the statements
+     */
+    public static <T> int executeUpsert(Connection connection, String table, String[] columns, String[] updateColumns,
+                                        List<T> data, Function<T, List<SqlType>> parsing,
+                                        long maxPacketBytes, boolean transactional) throws SQLException {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("Columns cannot be empty");
+        }
+
+        if (maxPacketBytes <= 0) {
+            maxPacketBytes = getMaxPacketBytes(connection);
+        }
+
+        var prefix = "INSERT " + (updateColumns.length == 0 ? "IGNORE " : "") + "INTO " + table
+                + " (" + String.join(", ", columns) + ") VALUES ";
+        var suffix = getUpsertSuffix(updateColumns);
+        var placeholders = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        long budget = maxPacketBytes - prefix.length() - suffix.length() - UPSERT_PACKET_HEADROOM;
+        int maxRows = Math.max(1, MAX_STATEMENT_PARAMETERS / columns.length);
+        boolean autoCommit = connection.getAutoCommit();
+
+        if (transactional) {
+            connection.setAutoCommit(false);
+        }
+
+        try {
+            List<List<SqlType>> chunk = Lists.newArrayList();
+            long chunkBytes = 0;
+            int affected = 0;
+
+            for (var datum : data) {
+                var row = parsing.apply(datum);
+
+                if (row.size() != columns.length) {
+                    throw new IllegalArgumentException("Expected " + columns.length + " values for " + table + " but got " + row.size());
+                }
+
+                long rowBytes = placeholders.length() + 2;
+
+                for (var value : row) {
+                    rowBytes += value.estimateSize();
+                }
+
+                if (!chunk.isEmpty() && (chunkBytes + rowBytes > budget || chunk.size() >= maxRows)) {
+                    affected += executeUpsertChunk(connection, prefix, placeholders, suffix, chunk);
+                    chunk.clear();
+                    chunkBytes = 0;
+                }
+
+                chunk.add(row);
+                chunkBytes += rowBytes;
+            }
+
+            if (!chunk.isEmpty()) {
+                affected += executeUpsertChunk(connection, prefix, placeholders, suffix, chunk);
+            }
+
+            if (transactional) {
+                connection.commit();
+            }
+
+            return affected;
+        } catch (SQLException | RuntimeException e) {
+            if (transactional) {
+                connection.rollback();
+            }
+
+            throw e;
+        } finally {
+            if (transactional) {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static String getUpsertSuffix(String[] updateColumns) {
+        if (updateColumns.length == 0) {
+            return ";";
+        }
+
+        var suffix = new StringBuilder(" ON DUPLICATE KEY UPDATE ");
+
+        for (int i = 0; i < updateColumns.length; i++) {
+            if (i != 0) {
+                suffix.append(", ");
+            }
+
+            suffix.append(updateColumns[i]).append(" = VALUES(").append(updateColumns[i]).append(")");
+        }
+
+        return suffix.append(";").toString();
+    }
+
+    private static int executeUpsertChunk(Connection connection, String prefix, String placeholders, String suffix,
+                                          List<List<SqlType>> rows) throws SQLException {
+        var query = new StringBuilder(prefix.length() + suffix.length() + rows.size() * (placeholders.length() + 2))
+                .append(prefix);
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (i != 0) {
+                query.append(", ");
+            }
+
+            query.append(placeholders);
+        }
+
+        try (var preparedStatement = connection.prepareStatement(query.append(suffix).toString())) {
+            int parameter = 1;
+
+            for (var row : rows) {
+                for (var value : row) {
+                    value.add(parameter++, preparedStatement);
+                }
+            }
+
+            return preparedStatement.executeUpdate();
+        }
+    }
+
+    private static boolean isMySQL(Connection connection) {
+        try {
+            var product = connection.getMetaData().getDatabaseProductName();
+            return product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB");
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static long getMaxPacketBytes(Connection connection) {
+        if (!isMySQL(connection)) {
+            return DEFAULT_MAX_PACKET_BYTES;
+        }
+
+        try (var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT @@max_allowed_packet")) {
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+        } catch (SQLException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error reading max_allowed_packet, defaulting to " + DEFAULT_MAX_PACKET_BYTES, e));
+        }
+
+        return DEFAULT_MAX_PACKET_BYTES;
+    }
+
+    /**
+     *
+     * Executes the query provided {@link PreparedStatement#executeQuery()}
+     * <br>
+     * The connection is closed before this returns, so the rows are copied into a disconnected
+     * {@link CachedRowSet} which holds the whole result in memory. For large results use
+     * {@link QueryBuilder#forEach(ExceptionThrowingConsumer)} or {@link QueryBuilder#stream()} instead
+     * <br>
+     * Columns are looked up by their label, so an aliased column ({@code SELECT name AS alias}) is read using the alias
      * <br>
      * Any errors will log to {@link UtilLogger} if set
      *
      * @param database The database to query
      * @param query The query
      * @param data The data to add
-     * @return The int after running
+     * @return The copied result set, or null if there was an error
      */
     public static ResultSet executeQuery(Database database, String query, SqlType... data) {
-        try (var connection = database.getConnection();
-             var preparedStatement = connection.prepareStatement(query)) {
-            for (int i = 0; i < data.length; i++) {
-                data[i].add(i + 1, preparedStatement);
-            }
-
-            return preparedStatement.executeQuery();
+        try (var connection = getReadConnection(database);
+             var preparedStatement = prepareQuery(connection, query, 0, data);
+             var resultSet = preparedStatement.executeQuery()) {
+            var rowSet = RowSetProvider.newFactory().createCachedRowSet();
+            rowSet.populate(resultSet);
+            useColumnLabels(resultSet.getMetaData(), (RowSetMetaData) rowSet.getMetaData());
+            return rowSet;
         } catch (SQLException e) {
             UtilLogger.logger().ifPresent(logger -> logger.error("Error executing SQL (" + query + ")", e));
         }
@@ -129,41 +407,201 @@ public class UtilSql {
 
     /**
      *
-     * Executes the query provided as an update {@link PreparedStatement#executeQuery()}
-     * then converts it to the data type
+     * The cached row set finds columns by their name, which is the underlying column rather than the alias,
+     * so the names are replaced with the labels the query gave them
+     *
+     */
+    private static void useColumnLabels(ResultSetMetaData metaData, RowSetMetaData rowSetMetaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            rowSetMetaData.setColumnName(i, metaData.getColumnLabel(i));
+        }
+    }
+
+    /**
+     *
+     * Executes the query provided {@link PreparedStatement#executeQuery()}
+     * then converts each row to the data type while the connection is still open
      * <br>
      * Any errors will log to {@link UtilLogger} if set
      *
      * @param database The database to query
      * @param query The query
+     * @param converter The converter from the row to the data type
      * @param data The data to add
-     * @return The int after running
+     * @return The converted rows
      */
     public static <T> List<T> executeQuery(Database database, String query, SQLFunction<ResultSet, T> converter, SqlType... data) {
-        try (var resultSet = executeQuery(database, query, data)) {
-            List<T> convertedData = Lists.newArrayList();
-            
-            while (resultSet.next()) {
-                var converted = converter.apply(resultSet);
-
-                if (converted == null) {
-                    continue;
-                }
+        List<T> convertedData = Lists.newArrayList();
+        long rows = forEach(database, query, 0, resultSet -> {
+            var converted = converter.apply(resultSet);
 
+            if (converted != null) {
                 convertedData.add(converted);
             }
-            
-            return convertedData;
+        }, data);
+
+        if (rows == -1) {
+            return Collections.emptyList();
+        }
+
+        return convertedData;
+    }
+
+    /**
+     *
+     * Executes the query provided {@link PreparedStatement#executeQuery()} and passes each row to the consumer
+     * while the connection is open, so only the rows fetched by the driver are held in memory at a time.
+     * <br>
+     * The consumer must not call {@link ResultSet#next()} or close the result set
+     * <br>
+     * Any errors will log to {@link UtilLogger} if set
+     *
+     * @param database The database to query
+     * @param query The query
+     * @param fetchSize The fetch size hint given to the driver, 0 to use the driver's default, or {@link #STREAMING_FETCH_SIZE}
+     * @param consumer The consumer called for each row
+     * @param data The data to add
+     * @return The number of rows read, or -1 if there was an error
+     */
+    public static long forEach(Database database, String query, int fetchSize,
+                               ExceptionThrowingConsumer<ResultSet, SQLException> consumer, SqlType... data) {
+        try (var connection = getReadConnection(database);
+             var preparedStatement = prepareQuery(connection, query, fetchSize, data);
+             var resultSet = preparedStatement.executeQuery()) {
+            long rows = 0;
+
+            while (resultSet.next()) {
+                consumer.accept(resultSet);
+                ++rows;
+            }
+
+            return rows;
         } catch (SQLException e) {
             UtilLogger.logger().ifPresent(logger -> logger.error("Error executing SQL (" + query + ")", e));
         }
-        
-        return Collections.emptyList();
+
+        return -1;
+    }
+
+    /**
+     *
+     * Executes the query provided {@link PreparedStatement#executeQuery()} and returns a lazy stream of the converted
+     * rows. The connection stays open until the stream has been fully consumed or {@link Stream#close()} is called,
+     * so the stream should always be used in a try-with-resources block.
+     * <br>
+     * Rows converted to null are skipped, and any {@link SQLException} thrown while reading is rethrown as an
+     * {@link UncheckedSQLException} after the connection is closed
+     *
+     * @param database The database to query
+     * @param query The query
+     * @param fetchSize The fetch size hint given to the driver, 0 to use the driver's default, or {@link #STREAMING_FETCH_SIZE}
+     * @param converter The converter from the row to the data type
+     * @param data The data to add
+     * @return The stream of rows
+     * @throws SQLException If the query could not be executed
+     */
+    public static <T> Stream<T> stream(Database database, String query, int fetchSize,
+                                       SQLFunction<ResultSet, T> converter, SqlType... data) throws SQLException {
+        var connection = getReadConnection(database);
+        PreparedStatement preparedStatement = null;
+
+        try {
+            preparedStatement = prepareQuery(connection, query, fetchSize, data);
+            var resultSet = preparedStatement.executeQuery();
+            var spliterator = new ResultSetSpliterator<>(connection, preparedStatement, resultSet, converter);
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(preparedStatement);
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    private static PreparedStatement prepareQuery(Connection connection, String query, int fetchSize, SqlType... data) throws SQLException {
+        var preparedStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+        try {
+            if (fetchSize == STREAMING_FETCH_SIZE) {
+                preparedStatement.setFetchSize(isMySQL(connection) ? Integer.MIN_VALUE : STREAMING_FETCH_ROWS);
+            } else if (fetchSize != 0) {
+                preparedStatement.setFetchSize(fetchSize);
+            }
+
+            for (int i = 0; i < data.length; i++) {
+                data[i].add(i + 1, preparedStatement);
+            }
+
+            return preparedStatement;
+        } catch (SQLException e) {
+            closeQuietly(preparedStatement);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error closing SQL resource", e));
+        }
+    }
+
+    /**
+     *
+     * Wraps the database so that queries run against it read from the primary instead of a read replica,
+     * for when the query has to see a write that was just made
+     *
+     * @param database The database
+     * @return The database reading from the primary
+     */
+    public static Database primary(Database database) {
+        if (database instanceof PrimaryDatabase) {
+            return database;
+        }
+
+        return new PrimaryDatabase(database);
+    }
+
+    /**
+     *
+     * Runs the supplier with every query made through this class on the calling thread reading from the primary
+     * instead of a read replica, including queries made inside code that doesn't know about replicas.
+     * <br>
+     * The save managers load attributes this way, so {@link com.envyful.api.player.Attribute#load(Object)}
+     * implementations using {@link #query(Database)} see the latest save rather than a lagging replica
+     *
+     * @param supplier The supplier
+     * @return The supplier's result
+     * @param <T> The result type
+     */
+    public static <T> T readingPrimary(Supplier<T> supplier) {
+        if (PRIMARY_READS.get()) {
+            return supplier.get();
+        }
+
+        PRIMARY_READS.set(true);
+
+        try {
+            return supplier.get();
+        } finally {
+            PRIMARY_READS.set(false);
+        }
+    }
+
+    private static Connection getReadConnection(Database database) throws SQLException {
+        return PRIMARY_READS.get() ? database.getConnection() : database.getReadConnection();
     }
 
     /**
      *
      * Creates a query builder
+     * <br>
+     * Queries read from a read replica if the database has any, which can lag behind the primary. Use
+     * {@link QueryBuilder#primary()} for queries that have to see a write that was just made
      *
      * @param database The database to query
      * @return The builder
@@ -209,12 +647,107 @@ public class UtilSql {
         return new BatchUpdateBuilder<T>().data(data);
     }
 
+    /**
+     *
+     * Creates a multi-row upsert builder
+     *
+     * @param data The data to send
+     * @return The builder
+     * @param <T> The type
+     */
+    public static <T> UpsertBuilder<T> upsert(List<T> data) {
+        return new UpsertBuilder<T>().data(data);
+    }
+
+    private static class PrimaryDatabase implements Database {
+
+        private final Database database;
+
+        private PrimaryDatabase(Database database) {
+            this.database = database;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return this.database.getConnection();
+        }
+
+        @Override
+        public Connection getReadConnection() throws SQLException {
+            return this.database.getConnection();
+        }
+
+        /**
+         *
+         * Does nothing, as the wrapped database is still owned by whoever created it
+         *
+         */
+        @Override
+        public void close() {}
+    }
+
+    private static class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+        private final Connection connection;
+        private final PreparedStatement preparedStatement;
+        private final ResultSet resultSet;
+        private final SQLFunction<ResultSet, T> converter;
+        private boolean closed = false;
+
+        private ResultSetSpliterator(Connection connection, PreparedStatement preparedStatement, ResultSet resultSet,
+                                     SQLFunction<ResultSet, T> converter) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.preparedStatement = preparedStatement;
+            this.resultSet = resultSet;
+            this.converter = converter;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (this.closed) {
+                return false;
+            }
+
+            try {
+                while (this.resultSet.next()) {
+                    var converted = this.converter.apply(this.resultSet);
+
+                    if (converted != null) {
+                        action.accept(converted);
+                        return true;
+                    }
+                }
+            } catch (SQLException e) {
+                this.close();
+                throw new UncheckedSQLException(e);
+            }
+
+            this.close();
+            return false;
+        }
+
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+            closeQuietly(this.resultSet);
+            closeQuietly(this.preparedStatement);
+            closeQuietly(this.connection);
+        }
+    }
+
     public static class QueryBuilder<T> {
 
         private Database database;
         private String query;
-        private List<SqlType> data = Lists.newArrayList();
+        private SqlType[] data = new SqlType[0];
         private SQLFunction<ResultSet, T> converter = null;
+        private int fetchSize = STREAMING_FETCH_SIZE;
+        private boolean primary = false;
 
         private QueryBuilder() {}
 
@@ -223,13 +756,28 @@ public class UtilSql {
             return this;
         }
 
+        /**
+         *
+         * Runs the query against the primary instead of a read replica, so that it sees any writes that were just made
+         *
+         * @return The builder
+         */
+        public QueryBuilder<T> primary() {
+            this.primary = true;
+            return this;
+        }
+
+        private Database getDatabase() {
+            return this.primary ? UtilSql.primary(this.database) : this.database;
+        }
+
         public QueryBuilder<T> query(String query) {
             this.query = query;
             return this;
         }
 
         public QueryBuilder<T> data(SqlType... data) {
-            this.data = Lists.newArrayList(data);
+            this.data = data;
             return this;
         }
 
@@ -238,22 +786,76 @@ public class UtilSql {
             return this;
         }
 
+        /**
+         *
+         * Sets the number of rows the driver fetches from the database at a time when using
+         * {@link #forEach(ExceptionThrowingConsumer)} or {@link #stream()}.
+         * <br>
+         * Defaults to {@link UtilSql#STREAMING_FETCH_SIZE}, so those rows are streamed rather than read into memory
+         * up front. MySQL only streams rows when this is {@link Integer#MIN_VALUE}, or when it is positive and
+         * useCursorFetch=true is set on the connection. Set to 0 to use the driver's default
+         *
+         * @param fetchSize The fetch size
+         * @return The builder
+         */
+        public QueryBuilder<T> fetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
         public ResultSet execute() {
             if (this.database == null) {
                 throw new IllegalArgumentException("Database cannot be null");
             }
 
-            return executeQuery(this.database, this.query, this.data.toArray(new SqlType[0]));
+            return executeQuery(this.getDatabase(), this.query, this.data);
         }
 
         public void execute(ExceptionThrowingConsumer<ResultSet, SQLException> consumer) {
             try (ResultSet resultSet = this.execute()) {
-                consumer.accept(resultSet);
+                if (resultSet != null) {
+                    consumer.accept(resultSet);
+                }
             } catch (SQLException e) {
                 UtilLogger.logger().ifPresent(logger -> logger.error("Error reading SQL result set", e));
             }
         }
 
+        /**
+         *
+         * Runs the query and passes each row to the consumer while the connection is open
+         *
+         * @param consumer The consumer called for each row
+         * @return The number of rows read, or -1 if there was an error
+         */
+        public long forEach(ExceptionThrowingConsumer<ResultSet, SQLException> consumer) {
+            if (this.database == null) {
+                throw new IllegalArgumentException("Database cannot be null");
+            }
+
+            return UtilSql.forEach(this.getDatabase(), this.query, this.fetchSize, consumer, this.data);
+        }
+
+        /**
+         *
+         * Runs the query and returns a lazy stream of the rows converted with the converter.
+         * The stream holds the connection open until it is consumed or closed, so use it in a try-with-resources block
+         *
+         * @return The stream of rows
+         * @throws SQLException If the query could not be executed
+         */
+        public Stream<T> stream() throws SQLException {
+            if (this.database == null) {
+                throw new IllegalArgumentException("Database cannot be null");
+            }
+
+            if (this.converter == null) {
+                throw new IllegalArgumentException("Converter cannot be null");
+            }
+
+            return UtilSql.stream(this.getDatabase(), this.query, this.fetchSize, this.converter, this.data);
+        }
+
         public List<T> executeWithConverter() {
             if (this.database == null) {
                 throw new IllegalArgumentException("Database cannot be null");
@@ -263,11 +865,11 @@ public class UtilSql {
                 throw new IllegalArgumentException("Converter cannot be null");
             }
 
-            return executeQuery(this.database, this.query, this.converter, this.data.toArray(new SqlType[0]));
+            return executeQuery(this.getDatabase(), this.query, this.converter, this.data);
         }
 
         public CompletableFuture<ResultSet> executeAsync() {
-            return this.executeAsync(UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE);
+            return this.executeAsync(UtilConcurrency.IO_EXECUTOR);
         }
 
         public CompletableFuture<ResultSet> executeAsync(Executor executor) {
@@ -275,7 +877,7 @@ public class UtilSql {
         }
 
         public CompletableFuture<List<T>> executeAsyncWithConverter() {
-            return this.executeAsyncWithConverter(UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE);
+            return this.executeAsyncWithConverter(UtilConcurrency.IO_EXECUTOR);
         }
 
         public CompletableFuture<List<T>> executeAsyncWithConverter(Executor executor) {
@@ -287,7 +889,7 @@ public class UtilSql {
 
         private Database database;
         private String query;
-        private List<SqlType> data = Lists.newArrayList();
+        private SqlType[] data = new SqlType[0];
 
         private UpdateBuilder() {}
 
@@ -302,7 +904,7 @@ public class UtilSql {
         }
 
         public UpdateBuilder data(SqlType... data) {
-            this.data = Lists.newArrayList(data);
+            this.data = data;
             return this;
         }
 
@@ -311,11 +913,11 @@ public class UtilSql {
                 throw new IllegalArgumentException("Database cannot be null");
             }
 
-            return executeUpdate(this.database, this.query, this.data.toArray(new SqlType[0]));
+            return executeUpdate(this.database, this.query, this.data);
         }
 
         public CompletableFuture<Integer> executeAsync() {
-            return this.executeAsync(UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE);
+            return this.executeAsync(UtilConcurrency.IO_EXECUTOR);
         }
 
         public CompletableFuture<Integer> executeAsync(Executor executor) {
@@ -329,6 +931,8 @@ public class UtilSql {
         private String query;
         private List<T> data = Lists.newArrayList();
         private Function<T, List<SqlType>> converter;
+        private int maxBatchSize = Integer.MAX_VALUE;
+        private boolean transactional = false;
 
         private BatchUpdateBuilder() {}
 
@@ -357,6 +961,16 @@ public class UtilSql {
             return this;
         }
 
+        public BatchUpdateBuilder<T> maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public BatchUpdateBuilder<T> transactional(boolean transactional) {
+            this.transactional = transactional;
+            return this;
+        }
+
         public int[] execute() {
             if (this.database == null) {
                 throw new IllegalArgumentException("Database cannot be null");
@@ -366,11 +980,11 @@ public class UtilSql {
                 throw new IllegalArgumentException("Converter cannot be null");
             }
 
-            return executeBatchUpdate(this.database, this.query, this.data, this.converter);
+            return executeBatchUpdate(this.database, this.query, this.data, this.converter, this.maxBatchSize, this.transactional);
         }
 
         public CompletableFuture<Integer[]> executeAsync() {
-            return this.executeAsync(UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE);
+            return this.executeAsync(UtilConcurrency.IO_EXECUTOR);
         }
 
         public CompletableFuture<Integer[]> executeAsync(Executor executor) {
@@ -387,4 +1001,112 @@ public class UtilSql {
         }
     }
 
+    public static class UpsertBuilder<T> {
+
+        private Database database;
+        private String table;
+        private String[] columns = new String[0];
+        private String[] updateColumns = null;
+        private List<T> data = Lists.newArrayList();
+        private Function<T, List<SqlType>> converter;
+        private long maxPacketBytes = 0;
+        private boolean transactional = false;
+
+        private UpsertBuilder() {}
+
+        public UpsertBuilder<T> database(Database database) {
+            this.database = database;
+            return this;
+        }
+
+        public UpsertBuilder<T> table(String table) {
+            this.table = table;
+            return this;
+        }
+
+        /**
+         *
+         * Sets the columns inserted, in the order the converter gives their values
+         *
+         * @param columns The columns
+         * @return The builder
+         */
+        public UpsertBuilder<T> columns(String... columns) {
+            this.columns = columns;
+            return this;
+        }
+
+        /**
+         *
+         * Sets the columns updated when a row already exists. Defaults to all the columns,
+         * and if none are given existing rows are left as they are
+         *
+         * @param updateColumns The columns to update
+         * @return The builder
+         */
+        public UpsertBuilder<T> updateColumns(String... updateColumns) {
+            this.updateColumns = updateColumns;
+            return this;
+        }
+
+        public UpsertBuilder<T> data(List<T> data) {
+            this.data.addAll(data);
+            return this;
+        }
+
+        public UpsertBuilder<T> converter(Function<T, List<SqlType>> converter) {
+            this.converter = converter;
+            return this;
+        }
+
+        /**
+         *
+         * Sets the max size of a single statement. Defaults to the server's max_allowed_packet
+         *
+         * @param maxPacketBytes The max size in bytes
+         * @return The builder
+         */
+        public UpsertBuilder<T> maxPacketBytes(long maxPacketBytes) {
+            this.maxPacketBytes = maxPacketBytes;
+            return this;
+        }
+
+        public UpsertBuilder<T> transactional(boolean transactional) {
+            this.transactional = transactional;
+            return this;
+        }
+
+        public int execute() {
+            if (this.database == null) {
+                throw new IllegalArgumentException("Database cannot be null");
+            }
+
+            if (this.converter == null) {
+                throw new IllegalArgumentException("Converter cannot be null");
+            }
+
+            if (this.data.isEmpty()) {
+                return 0;
+            }
+
+            try (var connection = this.database.getConnection()) {
+                return executeUpsert(connection, this.table, this.columns,
+                        this.updateColumns == null ? this.columns : this.updateColumns,
+                        this.data, this.converter, this.maxPacketBytes, this.transactional);
+            } catch (SQLException e) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error executing upsert into " + this.table, e));
+            }
+
+            return -1;
+        }
+
+        public CompletableFuture<Integer> executeAsync() {
+            return this.executeAsync(UtilConcurrency.IO_EXECUTOR);
+        }
+
+        public CompletableFuture<Integer> executeAsync(Executor executor) {
+            return CompletableFuture.supplyAsync(this::execute, executor);
+        }
+    }
+
 }
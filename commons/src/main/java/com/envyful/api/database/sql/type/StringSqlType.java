@@ -15,4 +15,9 @@ public class StringSqlType extends SingleValuedSqlType<String> {
     public void add(int parameter, PreparedStatement statement) throws SQLException {
         statement.setString(parameter, this.value);
     }
+
+    @Override
+    public int estimateSize() {
+        return this.value == null ? 1 : this.value.length() * 3 + 9;
+    }
 }
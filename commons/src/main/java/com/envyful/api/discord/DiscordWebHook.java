@@ -1,5 +1,6 @@
 package com.envyful.api.discord;
 
+import com.envyful.api.concurrency.UtilConcurrency;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -13,6 +14,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  *
@@ -120,6 +122,19 @@ public class DiscordWebHook {
         return webHook;
     }
 
+    /**
+     *
+     * Executes the message and sends it to the web hook URL on the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     * @return The future completed once the message has been sent
+     */
+    public CompletableFuture<Void> executeAsync() {
+        return UtilConcurrency.supplyIOWithException(() -> {
+            this.execute();
+            return null;
+        });
+    }
+
     /**
      *
      * Executes the message and sends it to the web hook URL
@@ -1,5 +1,6 @@
 package com.envyful.api.discord.yaml;
 
+import com.envyful.api.concurrency.UtilConcurrency;
 import com.envyful.api.config.yaml.AbstractYamlConfig;
 import com.envyful.api.text.Placeholder;
 import com.envyful.api.text.PlaceholderFactory;
@@ -14,6 +15,7 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @ConfigSerializable
 public class DiscordWebHookConfig extends AbstractYamlConfig {
@@ -43,6 +45,20 @@ public class DiscordWebHookConfig extends AbstractYamlConfig {
     public DiscordWebHookConfig() {
     }
 
+    /**
+     *
+     * Executes the message and sends it to the web hook URL on the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     * @param placeholders The placeholders to replace in the message
+     * @return The future completed once the message has been sent
+     */
+    public CompletableFuture<Void> executeAsync(Placeholder... placeholders) {
+        return UtilConcurrency.supplyIOWithException(() -> {
+            this.execute(placeholders);
+            return null;
+        });
+    }
+
     /**
      *
      * Executes the message and sends it to the web hook URL
@@ -30,7 +30,7 @@ public class UtilGson {
      * @return The completable future
      */
     public static CompletableFuture<JsonElement> downloadJson(String url) {
-        return UtilConcurrency.supplyAsyncWithException(() -> {
+        return UtilConcurrency.supplyIOWithException(() -> {
             var compiledURL = new URL(url);
             var stream = getConnectionStream(compiledURL);
 
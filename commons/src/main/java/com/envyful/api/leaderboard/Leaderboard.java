@@ -48,7 +48,7 @@ public class Leaderboard<A> {
     }
 
     public List<A> loadPage(int page) {
-        try (Connection connection = this.database.getConnection();
+        try (Connection connection = this.database.getReadConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(this.getSQL())) {
             ResultSet resultSet = preparedStatement.executeQuery();
             int counter = 0;
@@ -4,11 +4,12 @@ import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.player.attribute.PlayerAttribute;
 import com.envyful.api.player.save.SaveManager;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -24,12 +25,17 @@ import java.util.concurrent.CompletableFuture;
  * plugin / mod. The attributes stored by the plugin's / manager's
  * class as to allow each mod / plugin to have multiple
  * attributes for storing different sets of data.
+ * <br>
+ * Attributes are stored in an array indexed by their {@link AttributeSlots} slot. Reads are lock-free and
+ * use volatile access, so attributes set from a loading thread are safely visible on the server thread.
  *
  * @param <T> The specific platform implementation of the player object.
  */
 public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
 
-    protected final Map<Class<?>, AttributeInstance<?, ?, T>> attributes = Maps.newHashMap();
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(AttributeInstance[].class);
+
+    private volatile AttributeInstance<?, ?, T>[] attributes = newInstances(Math.max(8, AttributeSlots.getSlotCount()));
 
     protected final SaveManager<T> saveManager;
 
@@ -39,6 +45,11 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
         this.saveManager = saveManager;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> AttributeInstance<?, ?, T>[] newInstances(int size) {
+        return (AttributeInstance<?, ?, T>[]) new AttributeInstance<?, ?, ?>[size];
+    }
+
     @Override
     public T getParent() {
         return this.parent;
@@ -51,17 +62,18 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
     @Override
     @SuppressWarnings("unchecked")
     public <A extends Attribute<B, T>, B> CompletableFuture<A> getAttribute(Class<A> attributeClass) {
-        if (!this.attributes.containsKey(attributeClass)) {
+        AttributeInstance<A, B, T> instance = this.getInstance(attributeClass);
+
+        if (instance == null) {
             return null;
         }
 
-        AttributeInstance<A, B, T> instance = (AttributeInstance<A, B, T>) this.attributes.get(attributeClass);
         return instance.getAttribute();
     }
 
     @Override
     public <A extends Attribute<B, T>, B> boolean hasAttribute(Class<A> attributeClass) {
-        var instance = this.attributes.get(attributeClass);
+        AttributeInstance<A, B, T> instance = this.getInstance(attributeClass);
 
         if (instance == null) {
             return false;
@@ -71,26 +83,62 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
             return true;
         }
 
-        return instance.loadingAttribute != null && instance.loadingAttribute.isDone();
+        var loadingAttribute = instance.loadingAttribute;
+        return loadingAttribute != null && loadingAttribute.isDone();
     }
 
     @Override
     public <A extends Attribute<B, T>, B> A getAttributeNow(Class<A> attributeClass) {
-        if (!this.attributes.containsKey(attributeClass)) {
+        AttributeInstance<A, B, T> instance = this.getInstance(attributeClass);
+
+        if (instance == null) {
             return null;
         }
 
-        var instance = (AttributeInstance<A, B, T>) this.attributes.get(attributeClass);
+        var attribute = instance.attribute;
 
-        if (instance.attribute != null) {
+        if (attribute != null) {
+            return attribute;
+        }
+
+        var loadingAttribute = instance.loadingAttribute;
+
+        if (loadingAttribute == null) {
             return instance.attribute;
         }
 
-        if (instance.loadingAttribute == null) {
+        return loadingAttribute.join();
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <A extends Attribute<B, T>, B> AttributeInstance<A, B, T> getInstance(Class<?> attributeClass) {
+        int slot = AttributeSlots.getSlot(attributeClass);
+        var attributes = this.attributes;
+
+        if (slot >= attributes.length) {
             return null;
         }
 
-        return instance.loadingAttribute.join();
+        return (AttributeInstance<A, B, T>) SLOT.getVolatile(attributes, slot);
+    }
+
+    private synchronized void setInstance(Class<?> attributeClass, @Nullable AttributeInstance<?, ?, T> instance) {
+        int slot = AttributeSlots.getSlot(attributeClass);
+        var attributes = this.attributes;
+
+        if (slot >= attributes.length) {
+            if (instance == null) {
+                return;
+            }
+
+            attributes = Arrays.copyOf(attributes, Math.max(slot + 1, AttributeSlots.getSlotCount()));
+            attributes[slot] = instance;
+            this.attributes = attributes;
+            return;
+        }
+
+        SLOT.setVolatile(attributes, slot, instance);
     }
 
     @Override
@@ -104,7 +152,7 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
             ((PlayerAttribute<?, C, T>) attribute).setParent((C) this);
         }
 
-        this.attributes.put(attribute.getClass(), new AttributeInstance<>(attribute));
+        this.setInstance(attribute.getClass(), new AttributeInstance<>(attribute));
     }
 
     @Override
@@ -115,21 +163,32 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
                 ((PlayerAttribute<?, C, T>) a).setParent((C) this);
             }
         });
-        this.attributes.put(attributeClass, new AttributeInstance<>(attribute));
+        this.setInstance(attributeClass, new AttributeInstance<>(attribute));
     }
 
     @Override
     public <A extends Attribute<B, T>, B> void removeAttribute(Class<A> attributeClass) {
-        this.attributes.remove(attributeClass);
+        this.setInstance(attributeClass, null);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public List<Attribute<?, T>> getAttributes() {
         List<Attribute<?, T>> attributes = Lists.newArrayList();
 
-        for (var attribute : this.attributes.values()) {
-            if (attribute.getAttributeNow() != null) {
-                attributes.add(attribute.getAttributeNow());
+        var instances = this.attributes;
+
+        for (int i = 0; i < instances.length; i++) {
+            var instance = (AttributeInstance<?, ?, T>) SLOT.getVolatile(instances, i);
+
+            if (instance == null) {
+                continue;
+            }
+
+            var attribute = instance.getAttributeNow();
+
+            if (attribute != null) {
+                attributes.add(attribute);
             }
         }
 
@@ -138,8 +197,8 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
 
     protected static class AttributeInstance<A extends Attribute<B, C>, B, C> {
 
-        private A attribute;
-        private CompletableFuture<A> loadingAttribute;
+        private volatile A attribute;
+        private volatile CompletableFuture<A> loadingAttribute;
 
         AttributeInstance(A attribute) {
             this.attribute = attribute;
@@ -159,7 +218,8 @@ public abstract class AbstractEnvyPlayer<T> implements EnvyPlayer<T> {
         }
 
         CompletableFuture<A> getAttribute() {
-            return this.loadingAttribute == null ? CompletableFuture.completedFuture(this.attribute) : this.loadingAttribute;
+            var loadingAttribute = this.loadingAttribute;
+            return loadingAttribute == null ? CompletableFuture.completedFuture(this.attribute) : loadingAttribute;
         }
 
         @Nullable
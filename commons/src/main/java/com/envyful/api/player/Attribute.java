@@ -33,6 +33,37 @@ public interface Attribute<A, B> {
         return true;
     }
 
+    /**
+     *
+     * If the attribute has changed since it was last saved. Save triggers skip attributes that aren't dirty.
+     * <br>
+     * Attributes that don't track their changes are always dirty
+     *
+     * @return True if the attribute has unsaved changes
+     */
+    default boolean isDirty() {
+        return true;
+    }
+
+    /**
+     *
+     * Gets the number of changes made to the attribute, which is read before a save so that changes made while
+     * it is saving aren't lost
+     *
+     * @return The current version
+     */
+    default long getVersion() {
+        return 0L;
+    }
+
+    /**
+     *
+     * Marks the attribute as saved up to the given version, as read by {@link #getVersion()} before the save
+     *
+     * @param version The version that was saved
+     */
+    default void markSaved(long version) {}
+
     /**
      *
      * Loads the data into the attribute from the given id
@@ -41,6 +72,16 @@ public interface Attribute<A, B> {
      */
     void load(A id);
 
+    /**
+     *
+     * Sets the id of the attribute without loading any data.
+     * <br>
+     * Used when the save manager has populated the attribute itself, for example when bulk loading
+     *
+     * @param id The id
+     */
+    default void setId(A id) {}
+
     /**
      *
      * Saves the data from the attribute using the given id
@@ -0,0 +1,53 @@
+package com.envyful.api.player;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * Assigns each attribute class a dense integer slot, so players can store their attributes in an array
+ * instead of a map keyed by class.
+ * <br>
+ * Slots are assigned when the attribute is registered with a {@link PlayerManager}, and are never reused.
+ * Classes that are used without being registered are given a slot the first time they are looked up
+ *
+ */
+public class AttributeSlots {
+
+    private static final Map<Class<?>, Integer> SLOTS = Maps.newConcurrentMap();
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
+    private static final ClassValue<Integer> CACHE = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return SLOTS.computeIfAbsent(type, ___ -> NEXT_SLOT.getAndIncrement());
+        }
+    };
+
+    private AttributeSlots() {
+        throw new UnsupportedOperationException("Static utility class");
+    }
+
+    /**
+     *
+     * Gets the slot for the attribute class, assigning the next free slot if it doesn't have one
+     *
+     * @param attributeClass The attribute class
+     * @return The slot
+     */
+    public static int getSlot(Class<?> attributeClass) {
+        return CACHE.get(attributeClass);
+    }
+
+    /**
+     *
+     * Gets the number of slots that have been assigned
+     *
+     * @return The slot count
+     */
+    public static int getSlotCount() {
+        return NEXT_SLOT.get();
+    }
+}
@@ -4,8 +4,11 @@ import com.envyful.api.player.attribute.AttributeTrigger;
 import com.envyful.api.player.attribute.SharedAttribute;
 import com.envyful.api.player.save.SaveManager;
 import com.envyful.api.type.AsyncFunction;
+import com.google.common.collect.Lists;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
@@ -77,6 +80,25 @@ public interface PlayerManager<A extends EnvyPlayer<B>, B> {
       */
      List<A> getOnlinePlayers();
 
+     /**
+      *
+      * Gets the online players whose username starts with the prefix (case insensitive)
+      *
+      * @param prefix The start of the username
+      * @return The matching online players
+      */
+     default List<A> getOnlinePlayersByPrefix(String prefix) {
+          List<A> matching = Lists.newArrayList();
+
+          for (A online : this.getOnlinePlayers()) {
+               if (online.getName().regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    matching.add(online);
+               }
+          }
+
+          return matching;
+     }
+
      /**
       *
       * Sets the player manager's {@link SaveManager}
@@ -96,6 +118,8 @@ public interface PlayerManager<A extends EnvyPlayer<B>, B> {
      /**
       *
       * Loads the data for a single attribute using the given id
+      * <br>
+      * Uses {@link SaveManager#loadOfflineAttribute(Class, Object)} so repeated lookups of offline players can be cached
       *
       * @param attributeClass The class of the attribute
       * @param id The id to load the data using
@@ -104,7 +128,21 @@ public interface PlayerManager<A extends EnvyPlayer<B>, B> {
       * @param <Y> The id type
       */
      default <X extends Attribute<Y, B>, Y> CompletableFuture<X> loadAttribute(Class<? extends X> attributeClass, Y id) {
-          return this.getSaveManager().loadAttribute(attributeClass, id);
+          return this.getSaveManager().loadOfflineAttribute(attributeClass, id);
+     }
+
+     /**
+      *
+      * Loads the data for a single attribute for each of the given ids
+      *
+      * @param attributeClass The class of the attribute
+      * @param ids The ids to load the data using
+      * @return The attribute instances by their id
+      * @param <X> The attribute type
+      * @param <Y> The id type
+      */
+     default <X extends Attribute<Y, B>, Y> Map<Y, CompletableFuture<X>> loadAttributes(Class<? extends X> attributeClass, Collection<Y> ids) {
+          return this.getSaveManager().loadAttributes(attributeClass, ids);
      }
 
      /**
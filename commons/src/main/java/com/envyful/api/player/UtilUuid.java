@@ -1,5 +1,6 @@
 package com.envyful.api.player;
 
+import com.envyful.api.concurrency.UtilConcurrency;
 import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.json.UtilGson;
 
@@ -10,6 +11,7 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -44,6 +46,19 @@ public class UtilUuid {
         return result.getName();
     }
 
+    /**
+     *
+     * Gets the player's name from their UUID without blocking the calling thread.
+     * <br>
+     * The request to Mojang's API is made on the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     * @param uuid The player's uuid
+     * @return The future name fetched from Mojang's API
+     */
+    public static CompletableFuture<String> getNameFromUUIDAsync(UUID uuid) {
+        return UtilConcurrency.supplyIO(() -> getNameFromUUID(uuid));
+    }
+
     private static PlayerProfile getProfile(UUID uuid) {
         var profile = CACHED_NAMES.computeIfAbsent(uuid, UtilUuid::getProfileRemote);
 
@@ -108,6 +123,19 @@ public class UtilUuid {
         return formatUuid(result.getId());
     }
 
+    /**
+     *
+     * Gets the player's UUID from their name without blocking the calling thread.
+     * <br>
+     * The request to Mojang's API is made on the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     * @param name The player's name
+     * @return The future UUID fetched from Mojang's API
+     */
+    public static CompletableFuture<UUID> getUUIDFromNameAsync(String name) {
+        return UtilConcurrency.supplyIO(() -> getUUIDFromName(name));
+    }
+
     private static PlayerProfile getProfile(String name) {
         var profile = CACHED_UUIDS.computeIfAbsent(name, UtilUuid::getProfileRemote);
 
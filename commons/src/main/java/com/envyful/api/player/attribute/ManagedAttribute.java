@@ -3,11 +3,16 @@ package com.envyful.api.player.attribute;
 import com.envyful.api.player.Attribute;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  *
  * Abstract implementation of the attribute class storing the manager
  * and id of the attribute
+ * <br>
+ * Subclasses can opt in to dirty tracking by overriding {@link #isDirtyTracked()} and calling {@link #markDirty()}
+ * whenever they change, so that save triggers skip them while nothing has changed
  *
  * @param <A> The attribute ID type
  * @param <B> The manager instance for the attribute
@@ -15,14 +20,73 @@ import java.io.Serializable;
 public abstract class ManagedAttribute<A, B, C>
         implements Attribute<A, C>, Serializable {
 
+    private static final VarHandle VERSION;
+    private static final VarHandle SAVED_VERSION;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            VERSION = lookup.findVarHandle(ManagedAttribute.class, "version", long.class);
+            SAVED_VERSION = lookup.findVarHandle(ManagedAttribute.class, "savedVersion", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     protected final transient B manager;
 
     protected transient A id;
 
+    private transient volatile long version;
+    private transient volatile long savedVersion;
+
     protected ManagedAttribute(B manager) {
         this.manager = manager;
     }
 
+    @Override
+    public void setId(A id) {
+        this.id = id;
+    }
+
+    /**
+     *
+     * Marks the attribute as changed so it's saved by the next save trigger
+     *
+     */
+    public void markDirty() {
+        VERSION.getAndAdd(this, 1L);
+    }
+
+    /**
+     *
+     * If the attribute calls {@link #markDirty()} when it changes. If not it is saved by every save trigger
+     *
+     * @return True if changes are tracked
+     */
+    protected boolean isDirtyTracked() {
+        return false;
+    }
+
+    @Override
+    public boolean isDirty() {
+        return !this.isDirtyTracked() || this.version != this.savedVersion;
+    }
+
+    @Override
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public void markSaved(long version) {
+        long saved = this.savedVersion;
+
+        while (saved < version && !SAVED_VERSION.compareAndSet(this, saved, version)) {
+            saved = this.savedVersion;
+        }
+    }
+
     protected abstract void load();
 
     protected abstract void save();
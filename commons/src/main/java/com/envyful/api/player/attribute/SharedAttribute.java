@@ -41,6 +41,11 @@ public abstract class SharedAttribute<A, B, C> extends ManagedAttribute<A, B, C>
         this.load();
     }
 
+    @Override
+    public void setId(A id) {
+        this.id = id;
+    }
+
     @Override
     public void save(A id) {
         this.id = id;
@@ -6,19 +6,75 @@ import com.envyful.api.player.EnvyPlayer;
 import com.envyful.api.player.attribute.AbstractAttributeTrigger;
 import com.envyful.api.player.save.SaveManager;
 
+import java.util.concurrent.atomic.LongAdder;
+
 public class SaveAttributeTrigger<T> extends AbstractAttributeTrigger<T> {
 
+    private static final LongAdder SAVED = new LongAdder();
+    private static final LongAdder SKIPPED = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+
     @Override
     public void trigger(EnvyPlayer<T> player) {
         for (var data : this.attributes) {
             this.getIdMapper(player, data).apply(player)
-                    .thenAcceptAsync(id -> this.saveAttribute(data.saveManager(), player.getAttributeNow(data.attributeClass()), id), UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE);
+                    .thenAcceptAsync(id -> this.saveAttribute(data.saveManager(), player.getAttributeNow(data.attributeClass()), id), UtilConcurrency.IO_EXECUTOR);
         }
     }
 
     @SuppressWarnings("unchecked")
     private <A extends Attribute<B, T>, B> void saveAttribute(
             SaveManager<T> saveManager, A attribute, Object id) {
-        saveManager.saveData((B) id, attribute);
+        if (attribute == null) {
+            return;
+        }
+
+        if (!attribute.isDirty()) {
+            SKIPPED.increment();
+            return;
+        }
+
+        long version = attribute.getVersion();
+        saveManager.queueSave((B) id, attribute).whenComplete((___, throwable) -> {
+            if (throwable != null) {
+                FAILED.increment();
+                return;
+            }
+
+            attribute.markSaved(version);
+            SAVED.increment();
+        });
+    }
+
+    /**
+     *
+     * Gets the number of saves made by all save triggers that have been written
+     *
+     * @return The number of saves
+     */
+    public static long getSavedCount() {
+        return SAVED.sum();
+    }
+
+    /**
+     *
+     * Gets the number of saves made by all save triggers that could not be written.
+     * <br>
+     * The attribute is left dirty when a save fails, so it is saved again by the next trigger
+     *
+     * @return The number of failed saves
+     */
+    public static long getFailedCount() {
+        return FAILED.sum();
+    }
+
+    /**
+     *
+     * Gets the number of saves skipped by all save triggers because the attribute hadn't changed since its last save
+     *
+     * @return The number of skipped saves
+     */
+    public static long getSkippedCount() {
+        return SKIPPED.sum();
     }
 }
@@ -3,6 +3,7 @@ package com.envyful.api.player.attribute.trigger;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.EnvyPlayer;
 import com.envyful.api.player.attribute.AbstractAttributeTrigger;
+import com.envyful.api.player.save.AbstractSaveManager;
 import com.envyful.api.player.save.SaveManager;
 
 import java.util.concurrent.CompletableFuture;
@@ -34,6 +35,15 @@ public class SetAttributeTrigger<T> extends AbstractAttributeTrigger<T> {
     @SuppressWarnings("unchecked")
     private <A extends Attribute<B, T>, B> CompletableFuture<A> loadAttribute(
             SaveManager<T> saveManager, Class<? extends A> attributeClass, Object id) {
+        if (saveManager instanceof AbstractSaveManager) {
+            var offlineAttributes = ((AbstractSaveManager<T>) saveManager).getOfflineAttributeCache();
+
+            // The cached copy can be minutes old and skips a cluster's wait for saves, so always load on login
+            if (offlineAttributes != null) {
+                offlineAttributes.invalidate(attributeClass, id);
+            }
+        }
+
         return saveManager.loadAttribute(attributeClass, (B) id);
     }
 }
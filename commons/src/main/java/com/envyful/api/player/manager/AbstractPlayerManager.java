@@ -1,26 +1,35 @@
 package com.envyful.api.player.manager;
 
 import com.envyful.api.player.Attribute;
+import com.envyful.api.player.AttributeSlots;
 import com.envyful.api.player.EnvyPlayer;
 import com.envyful.api.player.PlayerManager;
+import com.envyful.api.player.attribute.trigger.SetAttributeTrigger;
+import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.player.save.SaveManager;
+import com.envyful.api.player.save.ShutdownCoordinator;
 import com.envyful.api.player.save.impl.EmptySaveManager;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 
 public abstract class AbstractPlayerManager<A extends EnvyPlayer<B>, B> implements PlayerManager<A, B> {
 
-    protected final Map<UUID, A> cachedPlayers = Maps.newConcurrentMap();
+    protected final OnlinePlayerIndex<A> onlinePlayers = new OnlinePlayerIndex<>();
     protected final Map<Class<? extends Attribute<?, B>>, AttributeData<?, ?, B>> attributeData = Maps.newHashMap();
     protected final Function<B, UUID> uuidGetter;
 
+    protected final SetAttributeTrigger<B> admissionTrigger = new SetAttributeTrigger<>();
+
     protected SaveManager<B> saveManager = new EmptySaveManager<>(this);
+    protected volatile LoginAdmission loginAdmission = null;
+    protected ShutdownCoordinator<B> shutdownCoordinator = ShutdownCoordinator.builder(this).build();
 
     protected AbstractPlayerManager(Function<B, UUID> uuidGetter) {
         this.uuidGetter = uuidGetter;
@@ -41,34 +50,158 @@ public abstract class AbstractPlayerManager<A extends EnvyPlayer<B>, B> implemen
             return null;
         }
 
-        return this.cachedPlayers.get(uuid);
+        return this.onlinePlayers.get(uuid);
     }
 
     @Override
     public A getOnlinePlayer(String username) {
-        for (A online : this.cachedPlayers.values()) {
-            if (online.getName().equals(username)) {
-                return online;
-            }
+        var online = this.onlinePlayers.getByName(username);
+
+        if (online == null || !online.getName().equals(username)) {
+            return null;
         }
 
-        return null;
+        return online;
     }
 
     @Override
     public A getOnlinePlayerCaseInsensitive(String username) {
-        for (A online : this.cachedPlayers.values()) {
-            if (online.getName().equalsIgnoreCase(username)) {
-                return online;
+        return this.onlinePlayers.getByName(username);
+    }
+
+    @Override
+    public List<A> getOnlinePlayers() {
+        return this.onlinePlayers.getPlayers();
+    }
+
+    @Override
+    public List<A> getOnlinePlayersByPrefix(String prefix) {
+        return this.onlinePlayers.getByPrefix(prefix);
+    }
+
+    /**
+     *
+     * Adds the player to the online players when they join
+     *
+     * @param uuid The player's UUID
+     * @param player The player
+     */
+    protected void addPlayer(UUID uuid, A player) {
+        this.onlinePlayers.add(uuid, player);
+    }
+
+    /**
+     *
+     * Removes the player from the online players after they leave
+     *
+     * @param uuid The player's UUID
+     * @return The removed player, or null if they weren't online
+     */
+    protected A removePlayer(UUID uuid) {
+        return this.onlinePlayers.remove(uuid);
+    }
+
+    /**
+     *
+     * Re-indexes the player's name. Called when the platform player is set or replaced
+     *
+     * @param uuid The player's UUID
+     */
+    protected void updatePlayerName(UUID uuid) {
+        this.onlinePlayers.updateName(uuid);
+    }
+
+    /**
+     *
+     * Sets the {@link LoginAdmission} used to hold players' logins until their attributes have loaded.
+     * <br>
+     * While set, attributes are loaded by the admission instead of the platform's login trigger
+     *
+     * @param loginAdmission The login admission, or null to load attributes after login
+     */
+    public void setLoginAdmission(LoginAdmission loginAdmission) {
+        this.loginAdmission = loginAdmission;
+    }
+
+    public LoginAdmission getLoginAdmission() {
+        return this.loginAdmission;
+    }
+
+    /**
+     *
+     * Loads all the player's registered attributes and waits for them using the {@link LoginAdmission}
+     *
+     * @param player The player logging in
+     * @return The admission result, or null if there is no login admission
+     */
+    protected CompletableFuture<LoginAdmission.Result> admit(A player) {
+        var loginAdmission = this.loginAdmission;
+
+        if (loginAdmission == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return loginAdmission.admit(player, () -> this.loadAttributes(player));
+    }
+
+    /**
+     *
+     * Checks if the platform's login trigger should load the player's attributes, which it shouldn't when they're being
+     * loaded by the {@link LoginAdmission}
+     *
+     * @param player The player
+     * @return The player, or null if the login admission is loading their attributes
+     */
+    protected A getLoginTriggerPlayer(A player) {
+        return this.loginAdmission == null ? player : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Void> loadAttributes(A player) {
+        this.admissionTrigger.trigger(player);
+
+        List<CompletableFuture<?>> loading = Lists.newArrayList();
+
+        for (var attributeClass : this.attributeData.keySet()) {
+            var future = player.getAttribute((Class) attributeClass);
+
+            if (future == null) {
+                continue;
             }
+
+            loading.add(future.thenAccept(attribute -> {
+                if (attribute == null) {
+                    throw new CompletionException(new IllegalStateException("Failed to load " + attributeClass.getSimpleName()));
+                }
+            }));
         }
 
-        return null;
+        return CompletableFuture.allOf(loading.toArray(new CompletableFuture<?>[0]));
     }
 
-    @Override
-    public List<A> getOnlinePlayers() {
-        return Collections.unmodifiableList(Lists.newArrayList(this.cachedPlayers.values()));
+    /**
+     *
+     * Sets the {@link ShutdownCoordinator} used to save the online players' attributes when the server stops
+     *
+     * @param shutdownCoordinator The shutdown coordinator
+     */
+    public void setShutdownCoordinator(ShutdownCoordinator<B> shutdownCoordinator) {
+        this.shutdownCoordinator = shutdownCoordinator;
+    }
+
+    public ShutdownCoordinator<B> getShutdownCoordinator() {
+        return this.shutdownCoordinator;
+    }
+
+    /**
+     *
+     * Saves the online players' attributes using the {@link ShutdownCoordinator}, blocking until they're saved or
+     * its deadline passes. Called by the platform when the server is stopping
+     *
+     */
+    protected void flushOnShutdown() {
+        var result = this.shutdownCoordinator.flush();
+        UtilLogger.logger().ifPresent(logger -> logger.info(result.toString()));
     }
 
     @Override
@@ -82,13 +215,14 @@ public abstract class AbstractPlayerManager<A extends EnvyPlayer<B>, B> implemen
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <X extends Attribute<Y, B>, Y> void registerAttribute(AttributeData<X, Y, B> attributeData) {
         for (var trigger : attributeData.triggers()) {
             trigger.addAttribute(attributeData);
         }
 
-        this.attributeData.put((Class<? extends Attribute<?, B>>) attributeData.getClass(), attributeData);
+        this.admissionTrigger.addAttribute(attributeData);
+        AttributeSlots.getSlot(attributeData.attributeClass());
+        this.attributeData.put(attributeData.attributeClass(), attributeData);
 
         if (this.saveManager != null) {
             this.saveManager.registerAttribute(attributeData);
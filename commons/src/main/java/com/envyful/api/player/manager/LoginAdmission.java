@@ -0,0 +1,313 @@
+package com.envyful.api.player.manager;
+
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.player.EnvyPlayer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ *
+ * Holds a player's login until their attributes have loaded, so that they don't join before their data exists.
+ * <br>
+ * When set on a player manager using {@link AbstractPlayerManager#setLoginAdmission(LoginAdmission)} the attributes
+ * are loaded during the platform's asynchronous login step (Spigot's pre login event, Velocity's login event) rather
+ * than by the usual login trigger. If the loads fail or take longer than the timeout the {@link Policy} decides whether
+ * to let the player in anyway, to try loading again, or to kick them.
+ * <br>
+ * The time spent waiting and the number of each outcome are recorded so they can be reported
+ *
+ */
+public class LoginAdmission {
+
+    private final long timeoutMillis;
+    private final Policy policy;
+    private final String kickMessage;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder kicked = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private LoginAdmission(Builder builder) {
+        this.timeoutMillis = builder.timeoutMillis;
+        this.policy = builder.policy == null ? Policy.retryThenKick(builder.maxRetries) : builder.policy;
+        this.kickMessage = builder.kickMessage;
+    }
+
+    /**
+     *
+     * Starts loading the player's attributes using the loader, and completes once the policy has admitted or kicked them.
+     * <br>
+     * The loader is called again for each retry, and its future should fail if any attribute failed to load
+     *
+     * @param player The player logging in
+     * @param loader Starts the attribute loads and returns a future completed when they've all finished
+     * @return The result
+     */
+    public CompletableFuture<Result> admit(EnvyPlayer<?> player, Supplier<CompletableFuture<?>> loader) {
+        return this.attempt(player, loader, 1, System.nanoTime());
+    }
+
+    private CompletableFuture<Result> attempt(EnvyPlayer<?> player, Supplier<CompletableFuture<?>> loader, int attempt, long start) {
+        CompletableFuture<?> loading;
+
+        try {
+            loading = loader.get();
+        } catch (Exception e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+
+        return loading.handle((ignored, throwable) -> {
+                    if (throwable != null) {
+                        UtilLogger.logger().ifPresent(logger -> logger.error("Error loading attributes for " + player.getUniqueId() + " on login", throwable));
+                        return Outcome.FAILED;
+                    }
+
+                    return Outcome.LOADED;
+                })
+                .completeOnTimeout(Outcome.TIMED_OUT, this.timeoutMillis, TimeUnit.MILLISECONDS)
+                .thenCompose(outcome -> {
+                    if (outcome == Outcome.TIMED_OUT) {
+                        this.timeouts.increment();
+                    } else if (outcome == Outcome.FAILED) {
+                        this.failures.increment();
+                    }
+
+                    var decision = outcome == Outcome.LOADED ? Decision.ADMIT : this.policy.decide(player, outcome, attempt);
+
+                    if (decision == Decision.RETRY) {
+                        this.retries.increment();
+                        return this.attempt(player, loader, attempt + 1, start);
+                    }
+
+                    return CompletableFuture.completedFuture(this.complete(outcome, decision == Decision.ADMIT, attempt, start));
+                });
+    }
+
+    private Result complete(Outcome outcome, boolean admit, int attempts, long start) {
+        long waited = System.nanoTime() - start;
+
+        this.totalWaitNanos.add(waited);
+        this.maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (admit) {
+            this.admitted.increment();
+        } else {
+            this.kicked.increment();
+        }
+
+        return new Result(outcome, admit, attempts, waited);
+    }
+
+    public String getKickMessage() {
+        return this.kickMessage;
+    }
+
+    public long getAdmitted() {
+        return this.admitted.sum();
+    }
+
+    public long getKicked() {
+        return this.kicked.sum();
+    }
+
+    public long getRetries() {
+        return this.retries.sum();
+    }
+
+    public long getTimeouts() {
+        return this.timeouts.sum();
+    }
+
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    /**
+     *
+     * Gets the average time players spent waiting for their attributes to load on login
+     *
+     * @return The average wait in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long logins = this.admitted.sum() + this.kicked.sum();
+
+        if (logins == 0) {
+            return 0;
+        }
+
+        return (double) TimeUnit.NANOSECONDS.toMicros(this.totalWaitNanos.sum()) / logins / 1000.0;
+    }
+
+    /**
+     *
+     * Gets the longest time a player has spent waiting for their attributes to load on login
+     *
+     * @return The longest wait in milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos.get());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     *
+     * How an attempt at loading a player's attributes ended
+     *
+     */
+    public enum Outcome {
+
+        LOADED,
+        FAILED,
+        TIMED_OUT,
+
+        ;
+
+    }
+
+    /**
+     *
+     * What to do with a player whose attributes didn't load
+     *
+     */
+    public enum Decision {
+
+        ADMIT,
+        RETRY,
+        KICK,
+
+        ;
+
+    }
+
+    /**
+     *
+     * Decides what to do with a player whose attributes failed to load or timed out
+     *
+     */
+    public interface Policy {
+
+        /**
+         *
+         * Decides what to do with the player
+         *
+         * @param player The player logging in
+         * @param outcome Whether the loads failed or timed out
+         * @param attempt The attempt that just finished, starting at 1
+         * @return The decision
+         */
+        Decision decide(EnvyPlayer<?> player, Outcome outcome, int attempt);
+
+        /**
+         *
+         * Retries up to the given number of times and then kicks the player
+         *
+         * @param maxRetries The number of retries
+         * @return The policy
+         */
+        static Policy retryThenKick(int maxRetries) {
+            return (player, outcome, attempt) -> attempt <= maxRetries ? Decision.RETRY : Decision.KICK;
+        }
+
+        /**
+         *
+         * Retries up to the given number of times and then lets the player in without their data
+         *
+         * @param maxRetries The number of retries
+         * @return The policy
+         */
+        static Policy retryThenAdmit(int maxRetries) {
+            return (player, outcome, attempt) -> attempt <= maxRetries ? Decision.RETRY : Decision.ADMIT;
+        }
+    }
+
+    public static class Result {
+
+        private final Outcome outcome;
+        private final boolean admitted;
+        private final int attempts;
+        private final long waitNanos;
+
+        private Result(Outcome outcome, boolean admitted, int attempts, long waitNanos) {
+            this.outcome = outcome;
+            this.admitted = admitted;
+            this.attempts = attempts;
+            this.waitNanos = waitNanos;
+        }
+
+        public Outcome getOutcome() {
+            return this.outcome;
+        }
+
+        public boolean isAdmitted() {
+            return this.admitted;
+        }
+
+        public int getAttempts() {
+            return this.attempts;
+        }
+
+        public long getWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.waitNanos);
+        }
+    }
+
+    public static class Builder {
+
+        private long timeoutMillis = TimeUnit.SECONDS.toMillis(10);
+        private int maxRetries = 1;
+        private Policy policy = null;
+        private String kickMessage = "&c&l(!) &cFailed to load your data, please try again";
+
+        private Builder() {}
+
+        /**
+         *
+         * Sets how long each attempt waits for the attributes to load
+         *
+         * @param timeout The timeout
+         * @param timeUnit The unit of the timeout
+         * @return The builder
+         */
+        public Builder timeout(long timeout, TimeUnit timeUnit) {
+            this.timeoutMillis = timeUnit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         *
+         * Sets the number of retries for the default policy, which kicks the player once they've been used up
+         *
+         * @param maxRetries The number of retries
+         * @return The builder
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder policy(Policy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        public Builder kickMessage(String kickMessage) {
+            this.kickMessage = kickMessage;
+            return this;
+        }
+
+        public LoginAdmission build() {
+            return new LoginAdmission(this);
+        }
+    }
+}
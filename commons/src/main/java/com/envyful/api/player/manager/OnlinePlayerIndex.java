@@ -0,0 +1,191 @@
+package com.envyful.api.player.manager;
+
+import com.envyful.api.player.EnvyPlayer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ *
+ * Keeps the online players of a {@link AbstractPlayerManager} indexed by UUID, by lowercase name, and in name order
+ * so that name lookups don't have to check every player, and prefix searches (i.e. for tab completion) only visit
+ * the matching players.
+ * <br>
+ * Players whose name isn't known yet (i.e. on Spigot before the Bukkit player has been set) are only indexed by UUID
+ * until {@link #updateName(UUID)} is called.
+ * <br>
+ * Reads are lock free. Changes are synchronized, and the list returned by {@link #getPlayers()} is only rebuilt
+ * after a player is added or removed
+ *
+ * @param <A> The player type
+ */
+public class OnlinePlayerIndex<A extends EnvyPlayer<?>> {
+
+    private final Map<UUID, A> players = Maps.newConcurrentMap();
+    private final Map<UUID, String> indexedNames = Maps.newConcurrentMap();
+    private final Map<String, A> byName = Maps.newConcurrentMap();
+    private final NavigableMap<String, A> byPrefix = new ConcurrentSkipListMap<>();
+    private final Map<UUID, A> view = Collections.unmodifiableMap(this.players);
+
+    private volatile List<A> snapshot = Collections.emptyList();
+
+    /**
+     *
+     * Adds the player, replacing any player with the same UUID
+     *
+     * @param uuid The player's UUID
+     * @param player The player
+     */
+    public synchronized void add(UUID uuid, A player) {
+        var previous = this.players.put(uuid, player);
+
+        if (previous != null && previous != player) {
+            this.unindexName(uuid, previous);
+        }
+
+        this.snapshot = null;
+        this.updateName(uuid);
+    }
+
+    /**
+     *
+     * Removes the player with the UUID
+     *
+     * @param uuid The player's UUID
+     * @return The removed player, or null if there wasn't one
+     */
+    public synchronized A remove(UUID uuid) {
+        var player = this.players.remove(uuid);
+
+        if (player == null) {
+            return null;
+        }
+
+        this.snapshot = null;
+        this.unindexName(uuid, player);
+        return player;
+    }
+
+    /**
+     *
+     * Re-reads the player's name and moves them in the name indexes if it, or the player instance indexed under it,
+     * has changed (i.e. after the platform player has been set or replaced)
+     *
+     * @param uuid The player's UUID
+     */
+    public synchronized void updateName(UUID uuid) {
+        var player = this.players.get(uuid);
+
+        if (player == null) {
+            return;
+        }
+
+        var name = getLowercaseName(player);
+
+        if (name == null || (name.equals(this.indexedNames.get(uuid)) && this.byName.get(name) == player)) {
+            return;
+        }
+
+        this.unindexName(uuid, player);
+        this.indexedNames.put(uuid, name);
+        this.byName.put(name, player);
+        this.byPrefix.put(name, player);
+    }
+
+    private void unindexName(UUID uuid, A player) {
+        var previous = this.indexedNames.remove(uuid);
+
+        if (previous != null) {
+            this.byName.remove(previous, player);
+            this.byPrefix.remove(previous, player);
+        }
+    }
+
+    private static String getLowercaseName(EnvyPlayer<?> player) {
+        if (player.getParent() == null) {
+            return null;
+        }
+
+        var name = player.getName();
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    public A get(UUID uuid) {
+        return this.players.get(uuid);
+    }
+
+    /**
+     *
+     * Gets the player with the name, ignoring case
+     *
+     * @param name The name
+     * @return The player, or null if no indexed player has the name
+     */
+    public A getByName(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        return this.byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     *
+     * Gets the players whose name starts with the prefix, ignoring case, in name order
+     *
+     * @param prefix The prefix
+     * @return The matching players
+     */
+    public List<A> getByPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return Lists.newArrayList(this.byPrefix.values());
+        }
+
+        var lowercase = prefix.toLowerCase(Locale.ROOT);
+        return Lists.newArrayList(this.byPrefix.subMap(lowercase, true, lowercase + Character.MAX_VALUE, false).values());
+    }
+
+    /**
+     *
+     * Gets an immutable list of the players, which is shared between callers until a player is added or removed
+     *
+     * @return The players
+     */
+    public List<A> getPlayers() {
+        var snapshot = this.snapshot;
+
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = this.snapshot;
+
+                if (snapshot == null) {
+                    snapshot = Collections.unmodifiableList(Lists.newArrayList(this.players.values()));
+                    this.snapshot = snapshot;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     *
+     * Gets a read only view of the players by UUID
+     *
+     * @return The players
+     */
+    public Map<UUID, A> asMap() {
+        return this.view;
+    }
+
+    public int size() {
+        return this.players.size();
+    }
+}
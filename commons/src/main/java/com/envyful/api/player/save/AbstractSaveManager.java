@@ -1,5 +1,6 @@
 package com.envyful.api.player.save;
 
+import com.envyful.api.concurrency.UtilConcurrency;
 import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.EnvyPlayer;
@@ -9,15 +10,20 @@ import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 public abstract class AbstractSaveManager<T> implements SaveManager<T> {
 
     protected final Map<Class<? extends Attribute<?, T>>, PlayerManager.AttributeData<?, ?, T>> registeredAttributes = Maps.newConcurrentMap();
-    protected final Map<Class<? extends Attribute<?, T>>, Map<Object, Attribute<?, T>>> sharedAttributes = Maps.newConcurrentMap();
 
     protected final PlayerManager<?, T> playerManager;
     protected BiConsumer<EnvyPlayer<T>, Throwable> errorHandler = (player, throwable) -> UtilLogger.logger().ifPresent(logger -> logger.error("Error loading data for " + player.getUniqueId() + " " + player.getName(), throwable));
+    protected SaveQueue<T> saveQueue = null;
+    protected volatile SharedAttributeCache<T> sharedAttributes = null;
+    protected OfflineAttributeCache<T> offlineAttributes = null;
 
 
     protected AbstractSaveManager(PlayerManager<?, T> playerManager) {
@@ -37,19 +43,186 @@ public abstract class AbstractSaveManager<T> implements SaveManager<T> {
         return this.errorHandler;
     }
 
+    /**
+     *
+     * Sets the write-behind queue used by {@link #queueSave(Object, Attribute)}.
+     * <br>
+     * Setting this to null will make all saves write immediately again
+     *
+     * @param saveQueue The save queue
+     */
+    public void setSaveQueue(@Nullable SaveQueue<T> saveQueue) {
+        if (this.saveQueue != null && this.saveQueue != saveQueue) {
+            this.saveQueue.shutdown();
+        }
+
+        this.saveQueue = saveQueue;
+    }
+
+    @Nullable
+    public SaveQueue<T> getSaveQueue() {
+        return this.saveQueue;
+    }
+
+    /**
+     *
+     * Sets the cache used by {@link #loadOfflineAttribute(Class, Object)}.
+     * <br>
+     * Setting this to null (the default) loads the attribute every time
+     *
+     * @param offlineAttributes The offline attribute cache
+     */
+    public void setOfflineAttributeCache(@Nullable OfflineAttributeCache<T> offlineAttributes) {
+        this.offlineAttributes = offlineAttributes;
+    }
+
+    @Nullable
+    public OfflineAttributeCache<T> getOfflineAttributeCache() {
+        return this.offlineAttributes;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<B, T>, B> CompletableFuture<A> loadOfflineAttribute(Class<? extends A> attributeClass, B id) {
+        if (id instanceof UUID && this.playerManager != null) {
+            var player = this.playerManager.getPlayer((UUID) id);
+
+            if (player != null) {
+                var online = player.getAttribute((Class<A>) attributeClass);
+
+                if (online != null) {
+                    return online;
+                }
+            }
+        }
+
+        var offlineAttributes = this.offlineAttributes;
+        var data = this.registeredAttributes.get(attributeClass);
+
+        if (offlineAttributes == null || (data != null && data.shared())) {
+            return this.loadAttribute(attributeClass, id);
+        }
+
+        return offlineAttributes.get(attributeClass, id, () -> this.loadAttribute(attributeClass, id));
+    }
+
+    @Override
+    public <A> CompletableFuture<Void> queueSave(A id, Attribute<A, T> attribute) {
+        if (this.offlineAttributes != null) {
+            this.offlineAttributes.invalidate(id, attribute);
+        }
+
+        if (this.saveQueue == null) {
+            return SaveManager.super.queueSave(id, attribute);
+        }
+
+        return this.saveQueue.enqueue(id, attribute);
+    }
+
+    /**
+     *
+     * Shuts down the {@link SaveQueue}, if there is one, so anything still queued is written before the save manager closes.
+     * <br>
+     * Subclasses overriding this must call it before releasing anything the queued writes need
+     *
+     */
+    @Override
+    public void close() {
+        var saveQueue = this.saveQueue;
+
+        if (saveQueue != null) {
+            saveQueue.shutdown();
+        }
+    }
+
+    @Nullable
+    protected <A> Attribute<A, T> getPendingSave(Class<?> attributeClass, A id) {
+        if (this.saveQueue == null) {
+            return null;
+        }
+
+        return this.saveQueue.getPending(attributeClass, id);
+    }
+
     @Override
     public <A extends Attribute<B, T>, B> void registerAttribute(PlayerManager.AttributeData<A, B, T> attribute) {
         Preconditions.checkNotNull(attribute, "Cannot register null attribute");
         this.registeredAttributes.put(attribute.attributeClass(), attribute);
     }
 
+    /**
+     *
+     * Replaces the cache used for shared attributes, for example to change the idle time or max size
+     *
+     * @param sharedAttributes The new cache
+     */
+    public synchronized void setSharedAttributeCache(SharedAttributeCache<T> sharedAttributes) {
+        if (this.sharedAttributes != null && this.sharedAttributes != sharedAttributes) {
+            this.sharedAttributes.shutdown();
+        }
+
+        this.sharedAttributes = sharedAttributes;
+    }
+
+    /**
+     *
+     * Gets the cache used for shared attributes.
+     * <br>
+     * The default cache, and its eviction task, is only created once the first shared attribute is loaded or added,
+     * so this is null for save managers that haven't used a shared attribute yet
+     *
+     * @return The shared attribute cache or null
+     */
+    @Nullable
+    public SharedAttributeCache<T> getSharedAttributeCache() {
+        return this.sharedAttributes;
+    }
+
+    private SharedAttributeCache<T> getOrCreateSharedAttributeCache() {
+        var sharedAttributes = this.sharedAttributes;
+
+        if (sharedAttributes != null) {
+            return sharedAttributes;
+        }
+
+        synchronized (this) {
+            if (this.sharedAttributes == null) {
+                this.sharedAttributes = SharedAttributeCache.builder(this).playerManager(this.playerManager).build();
+            }
+
+            return this.sharedAttributes;
+        }
+    }
+
+    /**
+     *
+     * Gets the shared attribute from the cache, or loads it on the executor using the loader.
+     * <br>
+     * Concurrent loads of the same attribute share the same future
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @param loader The loader used if the attribute is not cached
+     * @return The attribute future
+     * @param <A> The attribute type
+     */
+    protected <A extends Attribute<?, T>> CompletableFuture<A> loadSharedAttribute(Class<?> attributeClass, Object id, Supplier<A> loader) {
+        return this.getOrCreateSharedAttributeCache().get(attributeClass, id, () -> CompletableFuture.supplyAsync(loader, UtilConcurrency.IO_EXECUTOR));
+    }
+
+    @Nullable
     @SuppressWarnings("unchecked")
     protected <A> Attribute<A, T> getSharedAttribute(Class<? extends A> attributeClass, Object o) {
-        return (Attribute<A, T>) this.sharedAttributes.computeIfAbsent((Class<? extends Attribute<?, T>>) attributeClass, ___ -> Maps.newHashMap()).get(o);
+        var sharedAttributes = this.sharedAttributes;
+
+        if (sharedAttributes == null) {
+            return null;
+        }
+
+        return (Attribute<A, T>) sharedAttributes.getIfPresent(attributeClass, o);
     }
 
-    @SuppressWarnings("unchecked")
     protected void addSharedAttribute(Object key, Attribute<?, T> attribute) {
-        this.sharedAttributes.computeIfAbsent((Class<? extends Attribute<?, T>>) attribute.getClass(), ___ -> Maps.newHashMap()).put(key, attribute);
+        this.getOrCreateSharedAttributeCache().put(key, attribute);
     }
 }
@@ -0,0 +1,214 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.player.Attribute;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ *
+ * A size and time bounded cache of attributes loaded for players that aren't online, i.e. by admin commands,
+ * leaderboards, or GUIs using {@link com.envyful.api.player.PlayerManager#loadAttribute(Class, Object)}.
+ * <br>
+ * Loads are single-flight, meaning that concurrent loads of the same attribute class and id share one future.
+ * When the player logs in the cached attribute is dropped and loaded again, as the cached copy may be stale
+ * (i.e. saved since by another server), and saves of the attribute through
+ * {@link SaveManager#queueSave(Object, Attribute)} remove the cached copy unless it is the attribute being saved
+ *
+ * @param <T> The platform player type
+ */
+public class OfflineAttributeCache<T> {
+
+    private final Cache<Key, CompletableFuture<? extends Attribute<?, T>>> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    private OfflineAttributeCache(Builder<T> builder) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(builder.maxSize)
+                .expireAfterWrite(builder.expiryMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     *
+     * Gets the cached attribute, or loads it using the loader if it is not cached
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @param loader The loader used if the attribute is not cached
+     * @return The attribute future
+     * @param <A> The attribute type
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<?, T>> CompletableFuture<A> get(Class<?> attributeClass, Object id, Supplier<CompletableFuture<A>> loader) {
+        var key = new Key(attributeClass, id);
+        var missed = new boolean[1];
+        CompletableFuture<? extends Attribute<?, T>> future;
+
+        try {
+            future = this.cache.get(key, () -> {
+                missed[0] = true;
+                return loader.get();
+            });
+        } catch (ExecutionException e) {
+            this.misses.increment();
+            return CompletableFuture.failedFuture(e.getCause());
+        }
+
+        if (!missed[0]) {
+            this.hits.increment();
+            return (CompletableFuture<A>) future;
+        }
+
+        this.misses.increment();
+        future.whenComplete((attribute, throwable) -> {
+            if (throwable != null || attribute == null) {
+                this.cache.asMap().remove(key, future);
+            } else {
+                this.loads.increment();
+            }
+        });
+
+        return (CompletableFuture<A>) future;
+    }
+
+    /**
+     *
+     * Removes the cached copy of the attribute, unless it is the given attribute
+     *
+     * @param id The id
+     * @param attribute The attribute being saved
+     */
+    public void invalidate(Object id, Attribute<?, T> attribute) {
+        var key = new Key(attribute.getClass(), id);
+        var future = this.cache.getIfPresent(key);
+
+        if (future != null && (!future.isDone() || future.getNow(null) != attribute)) {
+            this.cache.asMap().remove(key, future);
+        }
+    }
+
+    /**
+     *
+     * Removes the attribute from the cache
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     */
+    public void invalidate(Class<?> attributeClass, Object id) {
+        this.cache.invalidate(new Key(attributeClass, id));
+    }
+
+    public long size() {
+        return this.cache.size();
+    }
+
+    /**
+     *
+     * Gets the number of times an attribute was already cached, or already loading, when requested
+     *
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     *
+     * Gets the number of times an attribute had to be loaded because it wasn't cached
+     *
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     *
+     * Gets the number of loads that finished with an attribute, which is then kept in the cache
+     *
+     * @return The load count
+     */
+    public long getLoadCount() {
+        return this.loads.sum();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    private static final class Key {
+
+        private final Class<?> attributeClass;
+        private final Object id;
+
+        private Key(Class<?> attributeClass, Object id) {
+            this.attributeClass = attributeClass;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return this.attributeClass.equals(key.attributeClass) && this.id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.attributeClass, this.id);
+        }
+    }
+
+    public static class Builder<T> {
+
+        private long maxSize = 1000;
+        private long expiryMillis = TimeUnit.MINUTES.toMillis(5);
+
+        private Builder() {}
+
+        /**
+         *
+         * Sets the max number of attributes kept, after which the least recently used are removed
+         *
+         * @param maxSize The max size
+         * @return The builder
+         */
+        public Builder<T> maxSize(long maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         *
+         * Sets how long an attribute is kept after it was loaded
+         *
+         * @param expiry The expiry
+         * @param timeUnit The unit of the expiry
+         * @return The builder
+         */
+        public Builder<T> expiry(long expiry, TimeUnit timeUnit) {
+            this.expiryMillis = timeUnit.toMillis(expiry);
+            return this;
+        }
+
+        public OfflineAttributeCache<T> build() {
+            return new OfflineAttributeCache<>(this);
+        }
+    }
+}
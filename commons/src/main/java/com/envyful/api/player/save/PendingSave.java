@@ -0,0 +1,70 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.player.Attribute;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *
+ * Represents a single attribute write that is waiting in a {@link SaveQueue}
+ *
+ * @param <A> The id type
+ * @param <T> The platform player type
+ */
+public class PendingSave<A, T> {
+
+    private final A id;
+    private final Attribute<A, T> attribute;
+    private final long queuedAt;
+    private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+    public PendingSave(A id, Attribute<A, T> attribute) {
+        this.id = id;
+        this.attribute = attribute;
+        this.queuedAt = System.currentTimeMillis();
+    }
+
+    public A getId() {
+        return this.id;
+    }
+
+    public Attribute<A, T> getAttribute() {
+        return this.attribute;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends Attribute<A, T>> getAttributeClass() {
+        return (Class<? extends Attribute<A, T>>) this.attribute.getClass();
+    }
+
+    /**
+     *
+     * Gets the time (in millis) that this save was first queued
+     *
+     * @return The time queued
+     */
+    public long getQueuedAt() {
+        return this.queuedAt;
+    }
+
+    /**
+     *
+     * Gets the future completed once the {@link SaveQueue} has written this save, or a newer save of the same
+     * attribute that replaced it
+     *
+     * @return The written future
+     */
+    public CompletableFuture<Void> getWritten() {
+        return this.written;
+    }
+
+    /**
+     *
+     * Passes the save through to the given save manager
+     *
+     * @param saveManager The save manager
+     */
+    public void save(SaveManager<T> saveManager) {
+        saveManager.saveData(this.id, this.attribute);
+    }
+}
@@ -4,7 +4,11 @@ import com.envyful.api.database.Database;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.EnvyPlayer;
 import com.envyful.api.player.PlayerManager;
+import com.google.common.collect.Maps;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
@@ -49,6 +53,46 @@ public interface SaveManager<T> {
      */
     <A> void saveData(A id, Attribute<A, T> attribute);
 
+    /**
+     *
+     * Queues the player's data from the given attribute to be saved.
+     * <br>
+     * If the save manager has a {@link SaveQueue} the write will be merged with any other pending
+     * writes for the same attribute and written later, otherwise it is saved immediately
+     * <br>
+     * The returned future completes once the data has been written, and completes exceptionally if it
+     * could not be, so callers can wait for the write before treating the attribute as saved
+     *
+     * @param id The unique ID of the attribute
+     * @param attribute The attribute being saved
+     * @return A future completed when the write has finished
+     */
+    default <A> CompletableFuture<Void> queueSave(A id, Attribute<A, T> attribute) {
+        try {
+            this.saveData(id, attribute);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     *
+     * Saves all the given pending saves.
+     * <br>
+     * Used by the {@link SaveQueue} when flushing so implementations can group the writes together.
+     * By default each save is passed to {@link #saveData(Object, Attribute)} one at a time
+     * <br>
+     * Implementations must throw if any of the saves could not be written, so the queue does not count them as saved
+     *
+     * @param saves The saves to write
+     */
+    default void saveAll(List<PendingSave<?, T>> saves) {
+        for (var save : saves) {
+            save.save(this);
+        }
+    }
+
     /**
      *
      * Loads the data for a single attribute using the given id
@@ -61,6 +105,46 @@ public interface SaveManager<T> {
      */
     <A extends Attribute<B, T>, B> CompletableFuture<A> loadAttribute(Class<? extends A> attributeClass, B id);
 
+    /**
+     *
+     * Loads the data for a single attribute for a player who may not be online, i.e. for a command or leaderboard.
+     * <br>
+     * Save managers with an {@link OfflineAttributeCache} return the cached attribute if there is one.
+     * By default this calls {@link #loadAttribute(Class, Object)}
+     *
+     * @param attributeClass The class of the attribute
+     * @param id The id to load the data using
+     * @return The attribute instance
+     * @param <A> The attribute type
+     * @param <B> The id type
+     */
+    default <A extends Attribute<B, T>, B> CompletableFuture<A> loadOfflineAttribute(Class<? extends A> attributeClass, B id) {
+        return this.loadAttribute(attributeClass, id);
+    }
+
+    /**
+     *
+     * Loads the data for a single attribute for each of the given ids.
+     * <br>
+     * Each id's future is completed as soon as its data has been loaded.
+     * By default this calls {@link #loadAttribute(Class, Object)} for each id
+     *
+     * @param attributeClass The class of the attribute
+     * @param ids The ids to load the data using
+     * @return The attribute instances by their id
+     * @param <A> The attribute type
+     * @param <B> The id type
+     */
+    default <A extends Attribute<B, T>, B> Map<B, CompletableFuture<A>> loadAttributes(Class<? extends A> attributeClass, Collection<B> ids) {
+        Map<B, CompletableFuture<A>> loading = Maps.newLinkedHashMap();
+
+        for (B id : ids) {
+            loading.put(id, this.loadAttribute(attributeClass, id));
+        }
+
+        return loading;
+    }
+
     /**
      *
      * Deletes all player data at the given location using the given database
@@ -84,4 +168,14 @@ public interface SaveManager<T> {
      */
     boolean delete(String name);
 
+    /**
+     *
+     * Called by the {@link ShutdownCoordinator} once every save has been written when the server is stopping,
+     * so the save manager can make its writes durable and release anything it holds open.
+     * <br>
+     * Does nothing by default
+     *
+     */
+    default void close() {}
+
 }
@@ -0,0 +1,367 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.player.Attribute;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * A write-behind queue that sits in front of a {@link SaveManager}.
+ * <br>
+ * Attributes queued for saving are marked as dirty and keyed by their class and id, so saving the
+ * same attribute multiple times before the queue is flushed will only result in a single write.
+ * <br>
+ * The queue is flushed on a fixed interval, or early if the number of pending writes reaches the max batch size.
+ *
+ * @param <T> The platform player type
+ */
+public class SaveQueue<T> {
+
+    private final SaveManager<T> saveManager;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+
+    private final Map<Key, PendingSave<?, T>> pending = Maps.newConcurrentMap();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong flushedCount = new AtomicLong();
+
+    private volatile long lastFlushLatency = 0L;
+    private volatile long maxFlushLatency = 0L;
+    private ScheduledFuture<?> flushTask;
+
+    private SaveQueue(Builder<T> builder) {
+        this.saveManager = builder.saveManager;
+        this.flushIntervalMillis = builder.flushIntervalMillis;
+        this.maxBatchSize = builder.maxBatchSize;
+    }
+
+    /**
+     *
+     * Queues the attribute to be written by the backing save manager.
+     * <br>
+     * If a save for the same attribute class and id is already waiting then the two are merged
+     *
+     * @param id The id to save the attribute with
+     * @param attribute The attribute
+     * @return A future completed once the attribute has been written
+     * @param <A> The id type
+     */
+    public <A> CompletableFuture<Void> enqueue(A id, @Nullable Attribute<A, T> attribute) {
+        if (id == null || attribute == null) {
+            this.droppedCount.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cannot queue a save without an id and attribute"));
+        }
+
+        var save = new PendingSave<>(id, attribute);
+        var previous = this.pending.put(new Key(attribute.getClass(), id), save);
+
+        if (previous != null) {
+            this.mergedCount.incrementAndGet();
+            save.getWritten().whenComplete((___, throwable) -> {
+                if (throwable == null) {
+                    previous.getWritten().complete(null);
+                } else {
+                    previous.getWritten().completeExceptionally(throwable);
+                }
+            });
+        }
+
+        if (this.pending.size() >= this.maxBatchSize && this.flushScheduled.compareAndSet(false, true)) {
+            UtilConcurrency.runIO(() -> {
+                this.flushScheduled.set(false);
+                this.flush();
+            });
+        }
+
+        return save.getWritten();
+    }
+
+    /**
+     *
+     * Gets the attribute waiting to be saved for the given class and id, if there is one.
+     * <br>
+     * Used when loading so that data that has not been written yet is not read back stale
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @return The pending attribute or null
+     * @param <A> The id type
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <A> Attribute<A, T> getPending(Class<?> attributeClass, A id) {
+        var pendingSave = this.pending.get(new Key(attributeClass, id));
+
+        if (pendingSave == null) {
+            return null;
+        }
+
+        return (Attribute<A, T>) pendingSave.getAttribute();
+    }
+
+    /**
+     *
+     * Writes all pending saves to the backing save manager in batches of the max batch size.
+     * <br>
+     * Saves stay visible to {@link #getPending(Class, Object)} until their write has finished, and are only removed
+     * if they were not replaced by a newer save while being written. Saves in a batch that fails are kept in the
+     * queue and retried on the next flush.
+     * <br>
+     * This will block the calling thread until the queue has been drained
+     *
+     * @return The number of attributes written
+     */
+    public synchronized int flush() {
+        long start = System.currentTimeMillis();
+        int written = 0;
+        List<Map.Entry<Key, PendingSave<?, T>>> entries = Lists.newArrayList(this.pending.entrySet());
+
+        for (int i = 0; i < entries.size(); i += this.maxBatchSize) {
+            var batchEntries = entries.subList(i, Math.min(entries.size(), i + this.maxBatchSize));
+            List<PendingSave<?, T>> batch = Lists.newArrayListWithCapacity(batchEntries.size());
+
+            for (var entry : batchEntries) {
+                batch.add(entry.getValue());
+            }
+
+            try {
+                this.saveManager.saveAll(batch);
+            } catch (Exception e) {
+                this.failedCount.addAndGet(batch.size());
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error saving batch of " + batch.size() + " queued attributes, will retry on the next flush", e));
+                continue;
+            }
+
+            for (var entry : batchEntries) {
+                this.pending.remove(entry.getKey(), entry.getValue());
+                entry.getValue().getWritten().complete(null);
+            }
+
+            written += batch.size();
+        }
+
+        this.flushedCount.addAndGet(written);
+        this.lastFlushLatency = System.currentTimeMillis() - start;
+        this.maxFlushLatency = Math.max(this.maxFlushLatency, this.lastFlushLatency);
+        return written;
+    }
+
+    /**
+     *
+     * Starts the repeating flush task. Called automatically by {@link Builder#build()}
+     * <br>
+     * The scheduler only triggers the flush, the writes themselves run on the {@link UtilConcurrency#IO_EXECUTOR}
+     *
+     */
+    public void start() {
+        if (this.flushTask != null) {
+            return;
+        }
+
+        this.flushTask = UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE.scheduleAtFixedRate(() -> UtilConcurrency.runIO(this::flush),
+                this.flushIntervalMillis, this.flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     *
+     * Stops the repeating flush task and writes anything left in the queue on the calling thread.
+     * <br>
+     * Saves that still fail to write are left in the queue, and their futures are completed exceptionally
+     *
+     * @return The number of attributes written
+     */
+    public int shutdown() {
+        if (this.flushTask != null) {
+            this.flushTask.cancel(false);
+            this.flushTask = null;
+        }
+
+        int written = this.flush();
+
+        for (var save : this.pending.values()) {
+            save.getWritten().completeExceptionally(new IllegalStateException("Save queue shut down before the save was written"));
+        }
+
+        return written;
+    }
+
+    /**
+     *
+     * Gets the number of saves currently waiting to be written
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return this.pending.size();
+    }
+
+    /**
+     *
+     * Gets the number of saves that were merged into an already pending save for the same attribute
+     *
+     * @return The merged count
+     */
+    public long getMergedCount() {
+        return this.mergedCount.get();
+    }
+
+    /**
+     *
+     * Gets the number of saves that were dropped because there was no attribute to save
+     *
+     * @return The dropped count
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+
+    /**
+     *
+     * Gets the number of writes that failed because the backing save manager threw an error.
+     * <br>
+     * Failed saves are kept in the queue, so the same save is counted again every time its retry fails
+     *
+     * @return The failed count
+     */
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    /**
+     *
+     * Gets the total number of attributes written by this queue
+     *
+     * @return The flushed count
+     */
+    public long getFlushedCount() {
+        return this.flushedCount.get();
+    }
+
+    /**
+     *
+     * Gets the time (in millis) the most recent flush took
+     *
+     * @return The last flush latency
+     */
+    public long getLastFlushLatency() {
+        return this.lastFlushLatency;
+    }
+
+    /**
+     *
+     * Gets the longest time (in millis) any flush has taken
+     *
+     * @return The max flush latency
+     */
+    public long getMaxFlushLatency() {
+        return this.maxFlushLatency;
+    }
+
+    public static <T> Builder<T> builder(SaveManager<T> saveManager) {
+        return new Builder<T>().saveManager(saveManager);
+    }
+
+    private static final class Key {
+
+        private final Class<?> attributeClass;
+        private final Object id;
+
+        private Key(Class<?> attributeClass, Object id) {
+            this.attributeClass = attributeClass;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return this.attributeClass.equals(key.attributeClass) && this.id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.attributeClass, this.id);
+        }
+    }
+
+    public static class Builder<T> {
+
+        private SaveManager<T> saveManager;
+        private long flushIntervalMillis = TimeUnit.SECONDS.toMillis(5);
+        private int maxBatchSize = 100;
+
+        private Builder() {}
+
+        public Builder<T> saveManager(SaveManager<T> saveManager) {
+            this.saveManager = saveManager;
+            return this;
+        }
+
+        /**
+         *
+         * Sets how often the queue is flushed
+         *
+         * @param flushInterval The interval
+         * @param timeUnit The unit of the interval
+         * @return The builder
+         */
+        public Builder<T> flushInterval(long flushInterval, TimeUnit timeUnit) {
+            this.flushIntervalMillis = timeUnit.toMillis(flushInterval);
+            return this;
+        }
+
+        /**
+         *
+         * Sets the max number of saves written in a single batch.
+         * <br>
+         * If this many saves are waiting the queue will flush early
+         *
+         * @param maxBatchSize The max batch size
+         * @return The builder
+         */
+        public Builder<T> maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public SaveQueue<T> build() {
+            if (this.saveManager == null) {
+                throw new IllegalArgumentException("Save manager cannot be null");
+            }
+
+            if (this.flushIntervalMillis <= 0) {
+                throw new IllegalArgumentException("Flush interval must be positive");
+            }
+
+            if (this.maxBatchSize <= 0) {
+                throw new IllegalArgumentException("Max batch size must be positive");
+            }
+
+            var saveQueue = new SaveQueue<>(this);
+            saveQueue.start();
+            return saveQueue;
+        }
+    }
+}
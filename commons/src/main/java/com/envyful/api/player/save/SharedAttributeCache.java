@@ -0,0 +1,416 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.EnvyPlayer;
+import com.envyful.api.player.PlayerManager;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ *
+ * A cache of {@link com.envyful.api.player.attribute.SharedAttribute} instances.
+ * <br>
+ * Loads are single-flight, meaning that concurrent loads of the same attribute class and id share one future.
+ * <br>
+ * Entries are referenced by the online players that hold them. Once an entry has no references and has not been
+ * accessed within the idle time, or the cache is over its max size, the attribute is saved and then evicted.
+ *
+ * @param <T> The platform player type
+ */
+public class SharedAttributeCache<T> {
+
+    private final SaveManager<T> saveManager;
+    private final PlayerManager<?, T> playerManager;
+    private final long idleTimeMillis;
+    private final int maxSize;
+
+    private final Map<Key, Entry<T>> entries = Maps.newConcurrentMap();
+    private ScheduledFuture<?> evictionTask;
+
+    private SharedAttributeCache(Builder<T> builder) {
+        this.saveManager = builder.saveManager;
+        this.playerManager = builder.playerManager;
+        this.idleTimeMillis = builder.idleTimeMillis;
+        this.maxSize = builder.maxSize;
+    }
+
+    /**
+     *
+     * Gets the cached attribute, or loads it using the loader if it is not cached.
+     * <br>
+     * If the attribute is already being loaded the existing future is returned
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @param loader The loader used if the attribute is not cached
+     * @return The attribute future
+     * @param <A> The attribute type
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<?, T>> CompletableFuture<A> get(Class<?> attributeClass, Object id, Supplier<CompletableFuture<A>> loader) {
+        var key = new Key(attributeClass, id);
+        var entry = this.entries.computeIfAbsent(key, ___ -> new Entry<>(loader.get()));
+
+        entry.lastAccess = System.currentTimeMillis();
+        entry.future.whenComplete((attribute, throwable) -> {
+            if (throwable != null || attribute == null) {
+                this.entries.remove(key, entry);
+            }
+        });
+
+        return (CompletableFuture<A>) entry.future;
+    }
+
+    /**
+     *
+     * Gets the attribute if it is cached and has finished loading
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @return The attribute or null
+     */
+    @Nullable
+    public Attribute<?, T> getIfPresent(Class<?> attributeClass, Object id) {
+        var entry = this.entries.get(new Key(attributeClass, id));
+
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.future.join();
+    }
+
+    /**
+     *
+     * Puts an already loaded attribute in the cache
+     *
+     * @param id The id
+     * @param attribute The attribute
+     */
+    public void put(Object id, Attribute<?, T> attribute) {
+        this.entries.put(new Key(attribute.getClass(), id), new Entry<>(CompletableFuture.completedFuture(attribute)));
+    }
+
+    /**
+     *
+     * Removes the attribute from the cache without saving it
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     */
+    public void invalidate(Class<?> attributeClass, Object id) {
+        this.entries.remove(new Key(attributeClass, id));
+    }
+
+    /**
+     *
+     * Removes all attributes of the given class whose id matches the predicate from the cache without saving them.
+     * <br>
+     * Used when only a string form of the id is known, i.e. from a message sent by another server.
+     * Attributes still held by an online player are kept, so the next load doesn't create a second instance
+     * alongside the one the player holds
+     *
+     * @param attributeClass The attribute class
+     * @param idPredicate The predicate the id must match
+     * @return The number of attributes removed
+     */
+    public int invalidateIf(Class<?> attributeClass, Predicate<Object> idPredicate) {
+        int removed = 0;
+
+        for (var entry : this.entries.entrySet()) {
+            var key = entry.getKey();
+
+            if (!key.attributeClass.equals(attributeClass) || !idPredicate.test(key.id)) {
+                continue;
+            }
+
+            var future = entry.getValue().future;
+
+            if (future.isDone() && !future.isCompletedExceptionally() && this.isHeld(future.join())) {
+                continue;
+            }
+
+            if (this.entries.remove(key, entry.getValue())) {
+                ++removed;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     *
+     * Gets the number of attributes in the cache
+     *
+     * @return The size
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     *
+     * Saves and removes all entries that are not held by an online player and have been idle for
+     * longer than the idle time. If the cache is still over its max size the least recently accessed
+     * unreferenced entries are then evicted.
+     * <br>
+     * Entries that cannot currently be saved ({@link Attribute#shouldSave()} is false) are kept until the next sweep
+     *
+     * @return The number of entries evicted
+     */
+    public int evict() {
+        Set<Attribute<?, T>> referenced = this.getReferencedAttributes();
+        List<Map.Entry<Key, Entry<T>>> candidates = Lists.newArrayList();
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+
+        for (var entry : this.entries.entrySet()) {
+            var future = entry.getValue().future;
+
+            if (!future.isDone() || future.isCompletedExceptionally() || referenced.contains(future.join())) {
+                continue;
+            }
+
+            if ((now - entry.getValue().lastAccess) >= this.idleTimeMillis) {
+                if (this.saveAndRemove(entry.getKey(), entry.getValue())) {
+                    ++evicted;
+                }
+            } else {
+                candidates.add(entry);
+            }
+        }
+
+        if (this.entries.size() <= this.maxSize) {
+            return evicted;
+        }
+
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+
+        for (var candidate : candidates) {
+            if (this.entries.size() <= this.maxSize) {
+                break;
+            }
+
+            if (this.saveAndRemove(candidate.getKey(), candidate.getValue())) {
+                ++evicted;
+            }
+        }
+
+        return evicted;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private boolean saveAndRemove(Key key, Entry<T> entry) {
+        Attribute attribute = entry.future.join();
+
+        if (!attribute.shouldSave()) {
+            return false;
+        }
+
+        if (!attribute.isDirty()) {
+            return this.entries.remove(key, entry);
+        }
+
+        try {
+            long version = attribute.getVersion();
+            this.saveManager.saveData(key.id, attribute);
+            attribute.markSaved(version);
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error saving shared attribute " + key.attributeClass.getName() + " with id " + key.id + " before eviction", e));
+            return false;
+        }
+
+        return this.entries.remove(key, entry);
+    }
+
+    /**
+     *
+     * Checks if any online player holds the attribute, by looking only at each player's slot for the attribute's class
+     * rather than collecting every attribute they hold like {@link #getReferencedAttributes()}
+     *
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private boolean isHeld(Attribute<?, T> attribute) {
+        if (this.playerManager == null) {
+            return false;
+        }
+
+        Class attributeClass = attribute.getClass();
+
+        for (EnvyPlayer<T> player : this.playerManager.getOnlinePlayers()) {
+            CompletableFuture<?> held = player.getAttribute(attributeClass);
+
+            if (held != null && held.isDone() && !held.isCompletedExceptionally() && held.join() == attribute) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Set<Attribute<?, T>> getReferencedAttributes() {
+        if (this.playerManager == null) {
+            return Collections.emptySet();
+        }
+
+        Set<Attribute<?, T>> referenced = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (EnvyPlayer<T> player : this.playerManager.getOnlinePlayers()) {
+            referenced.addAll(player.getAttributes());
+        }
+
+        return referenced;
+    }
+
+    /**
+     *
+     * Starts the repeating eviction task. Called automatically by {@link Builder#build()}
+     *
+     */
+    public void start() {
+        if (this.evictionTask != null) {
+            return;
+        }
+
+        long period = Math.max(1000L, this.idleTimeMillis / 2);
+        this.evictionTask = UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE.scheduleAtFixedRate(() -> UtilConcurrency.runIO(this::evict),
+                period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     *
+     * Stops the repeating eviction task
+     *
+     */
+    public void shutdown() {
+        if (this.evictionTask != null) {
+            this.evictionTask.cancel(false);
+            this.evictionTask = null;
+        }
+    }
+
+    public static <T> Builder<T> builder(SaveManager<T> saveManager) {
+        return new Builder<T>().saveManager(saveManager);
+    }
+
+    private static final class Entry<T> {
+
+        private final CompletableFuture<? extends Attribute<?, T>> future;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Entry(CompletableFuture<? extends Attribute<?, T>> future) {
+            this.future = future;
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> attributeClass;
+        private final Object id;
+
+        private Key(Class<?> attributeClass, Object id) {
+            this.attributeClass = attributeClass;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return this.attributeClass.equals(key.attributeClass) && this.id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.attributeClass, this.id);
+        }
+    }
+
+    public static class Builder<T> {
+
+        private SaveManager<T> saveManager;
+        private PlayerManager<?, T> playerManager;
+        private long idleTimeMillis = TimeUnit.MINUTES.toMillis(10);
+        private int maxSize = 1000;
+
+        private Builder() {}
+
+        public Builder<T> saveManager(SaveManager<T> saveManager) {
+            this.saveManager = saveManager;
+            return this;
+        }
+
+        /**
+         *
+         * Sets the player manager used to find which attributes are still held by online players
+         *
+         * @param playerManager The player manager
+         * @return The builder
+         */
+        public Builder<T> playerManager(PlayerManager<?, T> playerManager) {
+            this.playerManager = playerManager;
+            return this;
+        }
+
+        /**
+         *
+         * Sets how long an unreferenced attribute can go without being accessed before it is evicted
+         *
+         * @param idleTime The idle time
+         * @param timeUnit The unit of the idle time
+         * @return The builder
+         */
+        public Builder<T> idleTime(long idleTime, TimeUnit timeUnit) {
+            this.idleTimeMillis = timeUnit.toMillis(idleTime);
+            return this;
+        }
+
+        /**
+         *
+         * Sets the max number of attributes kept in the cache.
+         * <br>
+         * Attributes held by online players are never evicted, so the cache can grow past this size
+         *
+         * @param maxSize The max size
+         * @return The builder
+         */
+        public Builder<T> maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public SharedAttributeCache<T> build() {
+            if (this.saveManager == null) {
+                throw new IllegalArgumentException("Save manager cannot be null");
+            }
+
+            var cache = new SharedAttributeCache<>(this);
+            cache.start();
+            return cache;
+        }
+    }
+}
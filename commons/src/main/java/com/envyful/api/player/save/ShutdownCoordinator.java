@@ -0,0 +1,243 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.concurrency.ExecutorLane;
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.EnvyPlayer;
+import com.envyful.api.player.PlayerManager;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * Saves every online player's attributes when the server is stopping, blocking the stopping thread until they've been
+ * written or the deadline has passed.
+ * <br>
+ * The attributes that are dirty (see {@link Attribute#isDirty()}) are collected up front and written in parallel,
+ * using a fixed number of threads, directly through the player manager's {@link SaveManager}. Anything waiting in the
+ * save manager's {@link SaveQueue} is flushed alongside them, and any queued saves that still fail are counted as
+ * failed. Once the writes have finished the save manager is closed using {@link SaveManager#close()}
+ *
+ * @param <T> The platform player type
+ */
+public class ShutdownCoordinator<T> {
+
+    private final PlayerManager<?, T> playerManager;
+    private final int parallelism;
+    private final long deadlineMillis;
+
+    private ShutdownCoordinator(Builder<T> builder) {
+        this.playerManager = builder.playerManager;
+        this.parallelism = builder.parallelism;
+        this.deadlineMillis = builder.deadlineMillis;
+    }
+
+    /**
+     *
+     * Saves all the dirty attributes of the online players, blocking until they're saved or the deadline passes
+     *
+     * @return The number of saves that succeeded, failed, and timed out
+     */
+    public Result flush() {
+        long start = System.currentTimeMillis();
+        var saveManager = this.playerManager.getSaveManager();
+        var succeeded = new AtomicInteger();
+        var failed = new AtomicInteger();
+        int skipped = 0;
+        List<CompletableFuture<?>> saves = Lists.newArrayList();
+        var lane = ExecutorLane.fixed("envyware-shutdown-flush", this.parallelism);
+
+        for (var attribute : this.getAttributes()) {
+            if (!attribute.shouldSave() || !attribute.isDirty()) {
+                ++skipped;
+                continue;
+            }
+
+            saves.add(CompletableFuture.runAsync(() -> {
+                try {
+                    long version = attribute.getVersion();
+                    this.save(saveManager, attribute);
+                    attribute.markSaved(version);
+                    succeeded.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    UtilLogger.logger().ifPresent(logger -> logger.error("Error saving " + attribute.getClass().getName() + " on shutdown", e));
+                }
+            }, lane));
+        }
+
+        if (saveManager instanceof AbstractSaveManager && ((AbstractSaveManager<T>) saveManager).getSaveQueue() != null) {
+            var saveQueue = ((AbstractSaveManager<T>) saveManager).getSaveQueue();
+            saves.add(CompletableFuture.runAsync(() -> {
+                succeeded.addAndGet(saveQueue.shutdown());
+                failed.addAndGet(saveQueue.getQueueDepth());
+            }, lane));
+        }
+
+        try {
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])).get(this.deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Shutdown save deadline of " + this.deadlineMillis + "ms passed"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error saving on shutdown", e));
+        }
+
+        int timedOut = 0;
+
+        for (var save : saves) {
+            if (!save.isDone()) {
+                ++timedOut;
+            }
+        }
+
+        try {
+            lane.shutdown(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (timedOut == 0) {
+            this.close(saveManager);
+        }
+
+        return new Result(succeeded.get(), failed.get(), timedOut, skipped, System.currentTimeMillis() - start);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Attribute<Object, T>> getAttributes() {
+        Set<Attribute<Object, T>> attributes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (EnvyPlayer<T> player : this.playerManager.getOnlinePlayers()) {
+            for (var attribute : player.getAttributes()) {
+                attributes.add((Attribute<Object, T>) attribute);
+            }
+        }
+
+        return attributes;
+    }
+
+    private void save(SaveManager<T> saveManager, Attribute<Object, T> attribute) {
+        var id = attribute.getId().getNow(null);
+
+        if (id == null) {
+            throw new IllegalStateException("Attribute has no id");
+        }
+
+        saveManager.saveData(id, attribute);
+    }
+
+    private void close(SaveManager<T> saveManager) {
+        try {
+            saveManager.close();
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error closing save manager on shutdown", e));
+        }
+    }
+
+    public static <T> Builder<T> builder(PlayerManager<?, T> playerManager) {
+        return new Builder<T>().playerManager(playerManager);
+    }
+
+    public static class Result {
+
+        private final int succeeded;
+        private final int failed;
+        private final int timedOut;
+        private final int skipped;
+        private final long elapsedMillis;
+
+        private Result(int succeeded, int failed, int timedOut, int skipped, long elapsedMillis) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.skipped = skipped;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getSucceeded() {
+            return this.succeeded;
+        }
+
+        public int getFailed() {
+            return this.failed;
+        }
+
+        public int getTimedOut() {
+            return this.timedOut;
+        }
+
+        /**
+         *
+         * Gets the number of attributes that weren't saved because they hadn't changed
+         *
+         * @return The skipped count
+         */
+        public int getSkipped() {
+            return this.skipped;
+        }
+
+        public long getElapsedMillis() {
+            return this.elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Saved " + this.succeeded + " attributes (" + this.failed + " failed, " + this.timedOut + " timed out, "
+                    + this.skipped + " unchanged) in " + this.elapsedMillis + "ms";
+        }
+    }
+
+    public static class Builder<T> {
+
+        private PlayerManager<?, T> playerManager;
+        private int parallelism = 8;
+        private long deadlineMillis = TimeUnit.SECONDS.toMillis(30);
+
+        private Builder() {}
+
+        public Builder<T> playerManager(PlayerManager<?, T> playerManager) {
+            this.playerManager = playerManager;
+            return this;
+        }
+
+        /**
+         *
+         * Sets the number of attributes saved at the same time
+         *
+         * @param parallelism The number of threads
+         * @return The builder
+         */
+        public Builder<T> parallelism(int parallelism) {
+            this.parallelism = Math.max(1, parallelism);
+            return this;
+        }
+
+        /**
+         *
+         * Sets the longest the stopping thread is blocked for
+         *
+         * @param deadline The deadline
+         * @param timeUnit The unit of the deadline
+         * @return The builder
+         */
+        public Builder<T> deadline(long deadline, TimeUnit timeUnit) {
+            this.deadlineMillis = timeUnit.toMillis(deadline);
+            return this;
+        }
+
+        public ShutdownCoordinator<T> build() {
+            return new ShutdownCoordinator<>(this);
+        }
+    }
+}
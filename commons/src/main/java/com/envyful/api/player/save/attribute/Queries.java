@@ -20,4 +20,35 @@ public @interface Queries {
 
     String loadQuery();
 
+    /**
+     *
+     * The query used to load many attributes at once.
+     * <br>
+     * Must contain a single %s which is replaced with the parameter list for the ids,
+     * for example "SELECT * FROM table WHERE uuid IN (%s);". If empty the attributes are loaded one at a time
+     *
+     * @return The bulk load query
+     */
+    String bulkLoadQuery() default "";
+
+    /**
+     *
+     * The column the id of the attribute is stored in
+     *
+     * @return The id column
+     */
+    String idColumn() default "uuid";
+
+    /**
+     *
+     * The table the attribute is stored in.
+     * <br>
+     * When set, the SQL save manager remembers the column values it last loaded or saved for each attribute and
+     * later saves only update the columns that changed, using "UPDATE table SET column = ? ... WHERE idColumn = ?".
+     * If empty every save runs the full update query
+     *
+     * @return The table name
+     */
+    String table() default "";
+
 }
@@ -0,0 +1,70 @@
+package com.envyful.api.player.save.codec;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ *
+ * Converts attributes to and from the bytes stored by the {@link com.envyful.api.player.save.impl.JsonSaveManager}.
+ * <br>
+ * Codecs are given the save manager's {@link Gson} instance so that any
+ * {@link com.envyful.api.player.save.attribute.TypeAdapter} registered for the attribute is still used
+ *
+ */
+public interface AttributeCodec {
+
+    /**
+     *
+     * Gets the file extension (including the dot) used for files written by this codec
+     *
+     * @return The file extension
+     */
+    String getExtension();
+
+    /**
+     *
+     * Writes the attribute to the output stream
+     *
+     * @param gson The gson instance with the attribute's type adapters
+     * @param attribute The attribute
+     * @param outputStream The stream to write to
+     * @throws IOException If an error occurs while writing
+     */
+    void encode(Gson gson, Object attribute, OutputStream outputStream) throws IOException;
+
+    /**
+     *
+     * Reads an attribute of the given type from the input stream
+     *
+     * @param gson The gson instance with the attribute's type adapters
+     * @param type The attribute class
+     * @param inputStream The stream to read from
+     * @return The attribute
+     * @param <A> The attribute type
+     * @throws IOException If an error occurs while reading, or the data is invalid
+     */
+    <A> A decode(Gson gson, Class<A> type, InputStream inputStream) throws IOException;
+
+    /**
+     *
+     * Gets the codec storing attributes as compact JSON in `.json` files. This is the default codec
+     *
+     * @return The JSON codec
+     */
+    static AttributeCodec json() {
+        return JsonAttributeCodec.INSTANCE;
+    }
+
+    /**
+     *
+     * Gets the codec storing attributes in a compact length-prefixed binary format in `.bin` files
+     *
+     * @return The binary codec
+     */
+    static AttributeCodec binary() {
+        return BinaryAttributeCodec.INSTANCE;
+    }
+}
@@ -0,0 +1,215 @@
+package com.envyful.api.player.save.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Stores attributes in a compact length-prefixed binary format.
+ * <br>
+ * The attribute is first converted to a JSON tree using the {@link Gson} instance, so type adapters still apply,
+ * and then each element is written as a one byte tag followed by its value. Integers are written as
+ * zig-zag var ints, and strings, arrays, and objects are prefixed with their length rather than being delimited.
+ *
+ */
+public class BinaryAttributeCodec implements AttributeCodec {
+
+    static final BinaryAttributeCodec INSTANCE = new BinaryAttributeCodec();
+
+    private static final int MAGIC = 0x45574201;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte DECIMAL = 5;
+    private static final byte STRING = 6;
+    private static final byte ARRAY = 7;
+    private static final byte OBJECT = 8;
+
+    private BinaryAttributeCodec() {}
+
+    @Override
+    public String getExtension() {
+        return ".bin";
+    }
+
+    @Override
+    public void encode(Gson gson, Object attribute, OutputStream outputStream) throws IOException {
+        var output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        this.writeElement(output, gson.toJsonTree(attribute, attribute.getClass()));
+        output.flush();
+    }
+
+    private void writeElement(DataOutputStream output, JsonElement element) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            output.writeByte(NULL);
+        } else if (element.isJsonObject()) {
+            var entries = element.getAsJsonObject().entrySet();
+            output.writeByte(OBJECT);
+            this.writeVarInt(output, entries.size());
+
+            for (var entry : entries) {
+                this.writeString(output, entry.getKey());
+                this.writeElement(output, entry.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            var array = element.getAsJsonArray();
+            output.writeByte(ARRAY);
+            this.writeVarInt(output, array.size());
+
+            for (var child : array) {
+                this.writeElement(output, child);
+            }
+        } else {
+            this.writePrimitive(output, element.getAsJsonPrimitive());
+        }
+    }
+
+    private void writePrimitive(DataOutputStream output, JsonPrimitive primitive) throws IOException {
+        if (primitive.isBoolean()) {
+            output.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+        } else if (primitive.isString()) {
+            output.writeByte(STRING);
+            this.writeString(output, primitive.getAsString());
+        } else {
+            this.writeNumber(output, primitive.getAsNumber());
+        }
+    }
+
+    private void writeNumber(DataOutputStream output, Number number) throws IOException {
+        if (number instanceof Double || number instanceof Float) {
+            output.writeByte(DOUBLE);
+            output.writeDouble(number.doubleValue());
+            return;
+        }
+
+        var text = number.toString();
+
+        try {
+            long value = Long.parseLong(text);
+            output.writeByte(LONG);
+            this.writeVarLong(output, (value << 1) ^ (value >> 63));
+        } catch (NumberFormatException e) {
+            output.writeByte(DECIMAL);
+            this.writeString(output, text);
+        }
+    }
+
+    private void writeString(DataOutputStream output, String text) throws IOException {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        this.writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private void writeVarInt(DataOutputStream output, int value) throws IOException {
+        this.writeVarLong(output, value & 0xFFFFFFFFL);
+    }
+
+    private void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        output.writeByte((int) value);
+    }
+
+    @Override
+    public <A> A decode(Gson gson, Class<A> type, InputStream inputStream) throws IOException {
+        var input = new DataInputStream(inputStream);
+
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Invalid binary attribute header for " + type.getName());
+        }
+
+        return gson.fromJson(this.readElement(input), type);
+    }
+
+    private JsonElement readElement(DataInputStream input) throws IOException {
+        byte tag = input.readByte();
+
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case LONG:
+                long value = this.readVarLong(input);
+                return new JsonPrimitive((value >>> 1) ^ -(value & 1));
+            case DOUBLE:
+                return new JsonPrimitive(input.readDouble());
+            case DECIMAL:
+                return new JsonPrimitive(new BigDecimal(this.readString(input)));
+            case STRING:
+                return new JsonPrimitive(this.readString(input));
+            case ARRAY:
+                int size = this.readVarInt(input);
+                var array = new JsonArray();
+
+                for (int i = 0; i < size; i++) {
+                    array.add(this.readElement(input));
+                }
+
+                return array;
+            case OBJECT:
+                int entries = this.readVarInt(input);
+                var object = new JsonObject();
+
+                for (int i = 0; i < entries; i++) {
+                    object.add(this.readString(input), this.readElement(input));
+                }
+
+                return object;
+            default:
+                throw new IOException("Unknown binary attribute tag " + tag);
+        }
+    }
+
+    private String readString(DataInputStream input) throws IOException {
+        var bytes = new byte[this.readVarInt(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt(DataInputStream input) throws IOException {
+        long value = this.readVarLong(input);
+
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid binary attribute length " + value);
+        }
+
+        return (int) value;
+    }
+
+    private long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed binary attribute var int");
+    }
+}
@@ -0,0 +1,41 @@
+package com.envyful.api.player.save.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Stores attributes as compact (not pretty printed) UTF-8 JSON
+ *
+ */
+public class JsonAttributeCodec implements AttributeCodec {
+
+    static final JsonAttributeCodec INSTANCE = new JsonAttributeCodec();
+
+    private JsonAttributeCodec() {}
+
+    @Override
+    public String getExtension() {
+        return ".json";
+    }
+
+    @Override
+    public void encode(Gson gson, Object attribute, OutputStream outputStream) throws IOException {
+        var writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        gson.toJson(attribute, attribute.getClass(), new JsonWriter(writer));
+        writer.flush();
+    }
+
+    @Override
+    public <A> A decode(Gson gson, Class<A> type, InputStream inputStream) throws IOException {
+        return gson.fromJson(new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)), type);
+    }
+}
@@ -0,0 +1,445 @@
+package com.envyful.api.player.save.impl;
+
+import com.envyful.api.concurrency.UtilLogger;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * A key value store made up of segmented, append-only log files in a single directory.
+ * <br>
+ * Every write appends a record to the active segment, and an in-memory index maps each key to the
+ * location of its latest record. The index is rebuilt by scanning the segments when the log is opened,
+ * and a torn record at the end of the last segment (from a crash mid-write) is truncated.
+ * <br>
+ * Once the active segment reaches the max segment size it is sealed and memory-mapped for reads.
+ * The oldest sealed segments that are mostly made up of overwritten records are removed by {@link #compact(double)},
+ * which copies the records still in use to the active segment.
+ * <br>
+ * Record layout: key length (int), value length (int, -1 for a deletion), key (UTF-8), value, CRC32 of key and value (int)
+ *
+ */
+public class AttributeLog {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final int FOOTER_SIZE = 4;
+
+    private final Path directory;
+    private final long maxSegmentSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Location> index = Maps.newConcurrentMap();
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Segment active;
+    private boolean dirty = false;
+
+    /**
+     *
+     * Opens the log in the given directory, creating it if it doesn't exist and rebuilding the index from its segments
+     *
+     * @param directory The directory
+     * @param maxSegmentSize The size in bytes after which the active segment is sealed (capped at 1GB so it can be mapped)
+     * @throws IOException If an error occurs reading the segments
+     */
+    public AttributeLog(Path directory, long maxSegmentSize) throws IOException {
+        this.directory = directory;
+        this.maxSegmentSize = Math.min(maxSegmentSize, 1024L * 1024L * 1024L);
+
+        Files.createDirectories(directory);
+        File[] files = directory.toFile().listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION));
+
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length()));
+                this.segments.put(id, new Segment(id, file.toPath()));
+            }
+        }
+
+        for (var segment : this.segments.values()) {
+            this.load(segment, segment == this.segments.lastEntry().getValue());
+        }
+
+        if (this.segments.isEmpty()) {
+            this.active = this.createSegment(0);
+        } else {
+            this.active = this.segments.lastEntry().getValue();
+
+            for (var segment : this.segments.headMap(this.active.id).values()) {
+                segment.seal();
+            }
+        }
+    }
+
+    private void load(Segment segment, boolean last) throws IOException {
+        long size = segment.channel.size();
+        long position = 0;
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE + FOOTER_SIZE <= size) {
+            header.clear();
+            segment.channel.read(header, position);
+            header.flip();
+
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            long bodyLength = (long) keyLength + Math.max(0, valueLength);
+
+            if (keyLength < 0 || valueLength < -1 || position + HEADER_SIZE + bodyLength + FOOTER_SIZE > size) {
+                break;
+            }
+
+            var body = ByteBuffer.allocate((int) bodyLength + FOOTER_SIZE);
+            segment.channel.read(body, position + HEADER_SIZE);
+            body.flip();
+
+            var crc = new CRC32();
+            crc.update(body.array(), 0, (int) bodyLength);
+
+            if ((int) crc.getValue() != body.getInt((int) bodyLength)) {
+                break;
+            }
+
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            long recordLength = HEADER_SIZE + bodyLength + FOOTER_SIZE;
+
+            if (valueLength == -1) {
+                this.remove(this.index.remove(key));
+            } else {
+                this.remove(this.index.put(key, new Location(segment, position + HEADER_SIZE + keyLength, valueLength, recordLength)));
+                segment.liveBytes.addAndGet(recordLength);
+            }
+
+            position += recordLength;
+        }
+
+        if (position < size) {
+            if (!last) {
+                throw new IOException("Corrupt record in " + segment.path + " at " + position);
+            }
+
+            UtilLogger.logger().ifPresent(logger -> logger.warn("Truncating incomplete record at the end of " + segment.path));
+            segment.channel.truncate(position);
+        }
+
+        segment.size = position;
+    }
+
+    /**
+     *
+     * Reads the latest value stored for the key
+     *
+     * @param key The key
+     * @return The value, or null if there is no value for the key
+     * @throws IOException If an error occurs reading the segment
+     */
+    @Nullable
+    public byte[] read(String key) throws IOException {
+        this.lock.readLock().lock();
+
+        try {
+            var location = this.index.get(key);
+
+            if (location == null) {
+                return null;
+            }
+
+            return location.segment.read(location.offset, location.length);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * Appends the value for the key to the log, replacing any previous value.
+     * <br>
+     * The record is not guaranteed to be durable until {@link #sync()} is called
+     *
+     * @param key The key
+     * @param value The value
+     * @throws IOException If an error occurs writing the record
+     */
+    public void write(String key, byte[] value) throws IOException {
+        this.lock.writeLock().lock();
+
+        try {
+            this.remove(this.index.put(key, this.append(key, value)));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * Appends a deletion record for the key to the log
+     *
+     * @param key The key
+     * @throws IOException If an error occurs writing the record
+     */
+    public void delete(String key) throws IOException {
+        this.lock.writeLock().lock();
+
+        try {
+            if (this.index.containsKey(key)) {
+                this.append(key, null);
+                this.remove(this.index.remove(key));
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Location append(String key, @Nullable byte[] value) throws IOException {
+        if (this.active.size >= this.maxSegmentSize) {
+            this.roll();
+        }
+
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value == null ? 0 : value.length;
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + valueLength + FOOTER_SIZE);
+        var crc = new CRC32();
+
+        buffer.putInt(keyBytes.length);
+        buffer.putInt(value == null ? -1 : value.length);
+        buffer.put(keyBytes);
+        crc.update(keyBytes);
+
+        if (value != null) {
+            buffer.put(value);
+            crc.update(value);
+        }
+
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        long position = this.active.size;
+
+        while (buffer.hasRemaining()) {
+            this.active.channel.write(buffer, position + buffer.position());
+        }
+
+        this.active.size += buffer.limit();
+        this.dirty = true;
+
+        var location = new Location(this.active, position + HEADER_SIZE + keyBytes.length, valueLength, buffer.limit());
+
+        if (value != null) {
+            this.active.liveBytes.addAndGet(location.recordLength);
+        }
+
+        return location;
+    }
+
+    private void remove(@Nullable Location location) {
+        if (location != null) {
+            location.segment.liveBytes.addAndGet(-location.recordLength);
+        }
+    }
+
+    private void roll() throws IOException {
+        this.active.channel.force(false);
+        this.active.seal();
+        this.active = this.createSegment(this.active.id + 1);
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        var segment = new Segment(id, this.directory.resolve(SEGMENT_PREFIX + id + SEGMENT_EXTENSION));
+        this.segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     *
+     * Forces all records written since the last sync to disk
+     *
+     * @throws IOException If an error occurs syncing
+     */
+    public void sync() throws IOException {
+        this.lock.writeLock().lock();
+
+        try {
+            if (this.dirty) {
+                this.active.channel.force(false);
+                this.dirty = false;
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * Rewrites the records still in use from sealed segments where less than the given
+     * ratio of the segment is still in use, and then deletes those segments.
+     * <br>
+     * Only the oldest segments are compacted, stopping at the first segment that is still mostly in use.
+     * This makes sure a deletion record is never removed while an older segment still holds the deleted value
+     *
+     * @param minLiveRatio The ratio (0 to 1) of live bytes below which a segment is compacted
+     * @return The number of segments removed
+     * @throws IOException If an error occurs copying the records
+     */
+    public int compact(double minLiveRatio) throws IOException {
+        List<Segment> candidates = Lists.newArrayList();
+
+        for (var segment : this.segments.values()) {
+            if (segment == this.active || segment.liveBytes.get() >= segment.size * minLiveRatio) {
+                break;
+            }
+
+            candidates.add(segment);
+        }
+
+        for (var segment : candidates) {
+            this.lock.writeLock().lock();
+
+            try {
+                for (var entry : this.index.entrySet()) {
+                    var location = entry.getValue();
+
+                    if (location.segment == segment) {
+                        var value = segment.read(location.offset, location.length);
+                        this.index.put(entry.getKey(), this.append(entry.getKey(), value));
+                    }
+                }
+
+                this.active.channel.force(false);
+                this.dirty = false;
+                this.segments.remove(segment.id);
+                segment.close();
+                Files.deleteIfExists(segment.path);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+        return candidates.size();
+    }
+
+    /**
+     *
+     * Gets the number of keys with a value in the log
+     *
+     * @return The number of keys
+     */
+    public int size() {
+        return this.index.size();
+    }
+
+    /**
+     *
+     * Gets the number of segment files making up the log
+     *
+     * @return The number of segments
+     */
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     *
+     * Syncs and closes all segments
+     *
+     * @throws IOException If an error occurs closing the segments
+     */
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+
+        try {
+            this.active.channel.force(false);
+
+            for (var segment : this.segments.values()) {
+                segment.close();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Segment {
+
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong liveBytes = new AtomicLong();
+
+        private volatile long size;
+        private volatile MappedByteBuffer mapped;
+
+        private Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = this.channel.size();
+        }
+
+        private void seal() throws IOException {
+            if (this.size > 0) {
+                this.mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+            }
+        }
+
+        private byte[] read(long offset, int length) throws IOException {
+            var bytes = new byte[length];
+            var mapped = this.mapped;
+
+            if (mapped != null) {
+                var view = mapped.duplicate();
+                view.position((int) offset);
+                view.get(bytes);
+                return bytes;
+            }
+
+            var buffer = ByteBuffer.wrap(bytes);
+
+            while (buffer.hasRemaining()) {
+                if (this.channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + this.path);
+                }
+            }
+
+            return bytes;
+        }
+
+        private void close() throws IOException {
+            this.mapped = null;
+            this.channel.close();
+        }
+    }
+
+    private static final class Location {
+
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final long recordLength;
+
+        private Location(Segment segment, long offset, int length, long recordLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.recordLength = recordLength;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.envyful.api.player.save.impl;
+
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.database.Database;
+import com.envyful.api.database.impl.redis.Subscribe;
+import com.envyful.api.json.UtilGson;
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.PlayerManager;
+import com.envyful.api.player.save.AbstractSaveManager;
+import com.envyful.api.player.save.PendingSave;
+import com.envyful.api.player.save.SaveManager;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ *
+ * A save manager that keeps attribute data consistent between servers on a network that share a backing save manager.
+ * <br>
+ * Before saving, the server publishes which attributes it is about to write over Redis, and publishes again with the
+ * new version once the write has finished. Other servers that load one of those attributes while the save is still
+ * in flight wait (up to the max wait) for it to finish, rather than reading the old data.
+ * <br>
+ * Saves queued in a {@link com.envyful.api.player.save.SaveQueue} are published as in flight when they are queued,
+ * not only when the queue writes them.
+ * <br>
+ * When another server finishes a save, any copy of the attribute in the backing save manager's
+ * {@link com.envyful.api.player.save.SharedAttributeCache} that isn't held by an online player is dropped, and the
+ * invalidation listeners are called so plugins can clear their own caches.
+ * <br>
+ * If a save fails no saved message is published, so other servers wait out the max wait before loading.
+ * <br>
+ * Saves must be written by the backing save manager before {@link SaveManager#saveData(Object, Attribute)} returns
+ * for the wait to be accurate, which is the case for the SQL, JSON, and log save managers
+ *
+ * @param <T> The platform player type
+ */
+public class ClusterSaveManager<T> extends AbstractSaveManager<T> {
+
+    public static final String CHANNEL = "envyware:attribute_saves";
+
+    private static final String SAVING = "saving";
+    private static final String SAVED = "saved";
+    private static final long VERSION_EXPIRY_MINUTES = 30L;
+
+    private final String serverId = UUID.randomUUID().toString();
+    private final SaveManager<T> backing;
+    private final Database redis;
+    private final Map<String, Long> versions = CacheBuilder.newBuilder()
+            .expireAfterWrite(VERSION_EXPIRY_MINUTES, TimeUnit.MINUTES)
+            .<String, Long>build()
+            .asMap();
+    private final List<BiConsumer<Class<?>, String>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    private long maxWaitMillis = 3000L;
+    private volatile Map<String, InFlightSave> inFlight = createInFlight(this.maxWaitMillis);
+
+    public ClusterSaveManager(PlayerManager<?, T> playerManager, Database redis, SaveManager<T> backing) {
+        super(playerManager);
+
+        this.backing = backing;
+        this.redis = redis;
+        this.redis.subscribe(this);
+    }
+
+    /**
+     *
+     * Sets the longest a load will wait for another server's save to finish
+     *
+     * @param maxWait The max wait
+     * @param timeUnit The unit of the max wait
+     */
+    public void setMaxWait(long maxWait, TimeUnit timeUnit) {
+        this.maxWaitMillis = timeUnit.toMillis(maxWait);
+        this.inFlight = createInFlight(this.maxWaitMillis);
+    }
+
+    /**
+     *
+     * Creates the map of other servers' in flight saves. Entries are dropped once nothing would wait on them anymore,
+     * so saves whose saved message never arrives (i.e. the other server stopped or its write failed) don't build up
+     *
+     * @param maxWaitMillis The max wait
+     * @return The in flight saves
+     */
+    private static Map<String, InFlightSave> createInFlight(long maxWaitMillis) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(Math.max(1L, maxWaitMillis), TimeUnit.MILLISECONDS)
+                .<String, InFlightSave>build()
+                .asMap();
+    }
+
+    /**
+     *
+     * Adds a listener called with the attribute class and the id (as a string) whenever another server saves an attribute
+     *
+     * @param listener The listener
+     */
+    public void addInvalidationListener(BiConsumer<Class<?>, String> listener) {
+        this.invalidationListeners.add(listener);
+    }
+
+    /**
+     *
+     * Gets the latest version of the attribute this server knows of, from either its own saves or another server's
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @return The version, or 0 if it hasn't been saved in the last 30 minutes
+     */
+    public long getVersion(Class<?> attributeClass, Object id) {
+        return this.versions.getOrDefault(this.getKey(attributeClass, id.toString()), 0L);
+    }
+
+    public SaveManager<T> getBacking() {
+        return this.backing;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        this.backing.close();
+    }
+
+    @Override
+    public <A extends Attribute<B, T>, B> void registerAttribute(PlayerManager.AttributeData<A, B, T> attribute) {
+        this.backing.registerAttribute(attribute);
+        super.registerAttribute(attribute);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<B, T>, B> CompletableFuture<A> loadAttribute(Class<? extends A> attributeClass, B id) {
+        A pending = (A) this.getPendingSave(attributeClass, id);
+
+        if (pending != null) {
+            return CompletableFuture.completedFuture(pending);
+        }
+
+        var key = this.getKey(attributeClass, id.toString());
+        var save = this.inFlight.get(key);
+
+        if (save == null) {
+            return this.backing.loadAttribute(attributeClass, id);
+        }
+
+        long remaining = this.maxWaitMillis - (System.currentTimeMillis() - save.startedAt);
+
+        if (remaining <= 0) {
+            this.inFlight.remove(key, save);
+            return this.backing.loadAttribute(attributeClass, id);
+        }
+
+        return save.future.completeOnTimeout(null, remaining, TimeUnit.MILLISECONDS)
+                .thenCompose(___ -> this.backing.loadAttribute(attributeClass, id));
+    }
+
+    /**
+     *
+     * Publishes that the attribute is being saved as soon as it is queued, so other servers wait for the write even
+     * while it is still waiting in the {@link com.envyful.api.player.save.SaveQueue}
+     *
+     * @param id The unique ID of the attribute
+     * @param attribute The attribute being saved
+     * @return A future completed when the write has finished
+     */
+    @Override
+    public <A> CompletableFuture<Void> queueSave(A id, Attribute<A, T> attribute) {
+        if (this.saveQueue != null && id != null && attribute != null) {
+            this.publish(SAVING, Collections.singletonList(this.nextEntry(attribute.getClass(), id)));
+        }
+
+        return super.queueSave(id, attribute);
+    }
+
+    @Override
+    public <A> void saveData(A id, Attribute<A, T> attribute) {
+        this.saveAll(Collections.singletonList(new PendingSave<>(id, attribute)));
+    }
+
+    @Override
+    public void saveAll(List<PendingSave<?, T>> saves) {
+        List<Entry> entries = Lists.newArrayList();
+
+        for (var save : saves) {
+            entries.add(this.nextEntry(save.getAttributeClass(), save.getId()));
+        }
+
+        this.publish(SAVING, entries);
+
+        if (saves.size() == 1) {
+            saves.get(0).save(this.backing);
+        } else {
+            this.backing.saveAll(saves);
+        }
+
+        this.publish(SAVED, entries);
+    }
+
+    private Entry nextEntry(Class<?> attributeClass, Object id) {
+        var key = this.getKey(attributeClass, id.toString());
+        long version = this.versions.merge(key, System.currentTimeMillis(), (previous, now) -> Math.max(previous + 1, now));
+        return new Entry(attributeClass.getName(), id.toString(), version);
+    }
+
+    private void publish(String state, List<Entry> entries) {
+        try {
+            this.redis.publish(CHANNEL, UtilGson.GSON.toJson(new Message(this.serverId, state, entries)));
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error publishing attribute " + state + " message", e));
+        }
+    }
+
+    @Subscribe(CHANNEL)
+    public void onMessage(String channel, String json) {
+        var message = UtilGson.GSON.fromJson(json, Message.class);
+
+        if (message == null || message.entries == null || this.serverId.equals(message.server)) {
+            return;
+        }
+
+        for (var entry : message.entries) {
+            var key = entry.attribute + ":" + entry.id;
+
+            if (SAVING.equals(message.state)) {
+                this.inFlight.putIfAbsent(key, new InFlightSave(entry.version));
+                continue;
+            }
+
+            this.versions.merge(key, entry.version, Math::max);
+            var save = this.inFlight.get(key);
+
+            if (save != null && save.version <= entry.version && this.inFlight.remove(key, save)) {
+                save.future.complete(null);
+            }
+
+            this.invalidate(entry);
+        }
+    }
+
+    private void invalidate(Entry entry) {
+        Class<?> attributeClass = null;
+
+        for (var registered : this.registeredAttributes.keySet()) {
+            if (registered.getName().equals(entry.attribute)) {
+                attributeClass = registered;
+                break;
+            }
+        }
+
+        if (attributeClass == null) {
+            return;
+        }
+
+        var sharedAttributes = this.backing instanceof AbstractSaveManager ?
+                ((AbstractSaveManager<T>) this.backing).getSharedAttributeCache() : null;
+
+        if (sharedAttributes != null) {
+            sharedAttributes.invalidateIf(attributeClass, id -> id.toString().equals(entry.id));
+        }
+
+        for (var listener : this.invalidationListeners) {
+            try {
+                listener.accept(attributeClass, entry.id);
+            } catch (Exception e) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error in attribute invalidation listener", e));
+            }
+        }
+    }
+
+    private String getKey(Class<?> attributeClass, String id) {
+        return attributeClass.getName() + ":" + id;
+    }
+
+    @Override
+    public boolean delete(Database database, String name) {
+        return this.backing.delete(database, name);
+    }
+
+    @Override
+    public boolean delete(String name) {
+        return this.backing.delete(name);
+    }
+
+    private static final class InFlightSave {
+
+        private final long version;
+        private final long startedAt = System.currentTimeMillis();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private InFlightSave(long version) {
+            this.version = version;
+        }
+    }
+
+    private static final class Message {
+
+        private final String server;
+        private final String state;
+        private final List<Entry> entries;
+
+        private Message(String server, String state, List<Entry> entries) {
+            this.server = server;
+            this.state = state;
+            this.entries = entries;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String attribute;
+        private final String id;
+        private final long version;
+
+        private Entry(String attribute, String id, long version) {
+            this.attribute = attribute;
+            this.id = id;
+            this.version = version;
+        }
+    }
+}
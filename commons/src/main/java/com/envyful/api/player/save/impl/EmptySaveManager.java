@@ -3,6 +3,7 @@ package com.envyful.api.player.save.impl;
 import com.envyful.api.concurrency.UtilConcurrency;
 import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.database.Database;
+import com.envyful.api.database.sql.UtilSql;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.EnvyPlayer;
 import com.envyful.api.player.PlayerManager;
@@ -28,25 +29,33 @@ public class EmptySaveManager<T> extends AbstractSaveManager<T> {
         Preconditions.checkNotNull(attributeClass, "Cannot load attribute with null class");
         Preconditions.checkNotNull(id, "Cannot load attribute with null id");
 
-        return CompletableFuture.supplyAsync(() -> {
-                    var data = this.registeredAttributes.get(attributeClass);
+        var data = this.registeredAttributes.get(attributeClass);
 
-                    if (data.shared()) {
-                        A sharedAttribute = (A) this.getSharedAttribute(attributeClass, id);
+        if (data != null && data.shared()) {
+            return this.<A>loadSharedAttribute(attributeClass, id, () -> UtilSql.readingPrimary(() -> {
+                        A sharedAttribute = (A) data.constructor().get();
+                        sharedAttribute.load(id);
+                        return sharedAttribute;
+                    }))
+                    .exceptionally(throwable -> {
+                        UtilLogger.logger().ifPresent(logger -> logger.error("Error when loading attribute data for " + attributeClass.getName(), throwable));
+                        return null;
+                    });
+        }
 
-                        if (sharedAttribute == null) {
-                            sharedAttribute = (A) data.constructor().get();
-                            sharedAttribute.load(id);
-                            this.addSharedAttribute(id, sharedAttribute);
-                        }
+        return CompletableFuture.supplyAsync(() -> {
+                    A pending = (A) this.getPendingSave(attributeClass, id);
 
-                        return sharedAttribute;
-                    } else {
+                    if (pending != null) {
+                        return pending;
+                    }
+
+                    return UtilSql.readingPrimary(() -> {
                         A attribute = (A) data.constructor().get();
                         attribute.load(id);
                         return attribute;
-                    }
-                }, UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE)
+                    });
+                }, UtilConcurrency.IO_EXECUTOR)
                 .exceptionally(throwable -> {
                     UtilLogger.logger().ifPresent(logger -> logger.error("Error when loading attribute data for " + attributeClass.getName(), throwable));
                     return null;
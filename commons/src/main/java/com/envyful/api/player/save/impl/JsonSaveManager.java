@@ -3,39 +3,118 @@ package com.envyful.api.player.save.impl;
 import com.envyful.api.concurrency.UtilConcurrency;
 import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.database.Database;
-import com.envyful.api.json.UtilGson;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.PlayerManager;
 import com.envyful.api.player.save.AbstractSaveManager;
+import com.envyful.api.player.save.PendingSave;
 import com.envyful.api.player.save.attribute.DataDirectory;
 import com.envyful.api.player.save.attribute.TypeAdapter;
+import com.envyful.api.player.save.codec.AttributeCodec;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonWriter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ *
+ * File based implementation of the save manager.
+ * <br>
+ * Each attribute is stored in its own file under the attribute's {@link DataDirectory}, named after the id.
+ * The file format is decided by the {@link AttributeCodec}, which defaults to JSON.
+ * <br>
+ * When a non-JSON codec is set, existing `.json` files are read the first time the attribute is loaded
+ * and rewritten using the new codec. Whole directories can be converted up front using {@link #migrate(Class)}
+ * <br>
+ * Files are written to a temporary file which is then renamed over the original, so a crash mid-save
+ * leaves either the old or the new data and never a half written file. Writes and reads for the same id
+ * are serialized using a per-key lock, and the directory fsyncs needed to make the renames durable
+ * are grouped so that many saves share a single sync
+ *
+ * @param <T> The platform player type
+ */
 public class JsonSaveManager<T> extends AbstractSaveManager<T> {
 
     private static final GsonBuilder GSON_BUILDER = new GsonBuilder()
             .setPrettyPrinting();
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+    private static final ThreadLocal<WriteBuffer> BUFFER = ThreadLocal.withInitial(WriteBuffer::new);
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int LOCK_STRIPES = 64;
 
     private static Gson gson = null;
 
     protected final Map<Class<? extends Attribute<?, T>>, String> attributeDirectories = Maps.newHashMap();
+    protected AttributeCodec codec;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Set<Path> dirtyDirectories = Collections.newSetFromMap(Maps.newConcurrentMap());
+    private final AtomicBoolean directorySyncScheduled = new AtomicBoolean(false);
+    private long directorySyncWindow = 1000L;
 
     public JsonSaveManager(PlayerManager<?, T> playerManager) {
+        this(playerManager, AttributeCodec.json());
+    }
+
+    public JsonSaveManager(PlayerManager<?, T> playerManager, AttributeCodec codec) {
         super(playerManager);
+
+        this.codec = codec;
+
+        for (int i = 0; i < this.locks.length; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     *
+     * Sets the codec used to write attribute files.
+     * <br>
+     * Files written by the previous codec are not converted, see {@link #migrate(Class)}
+     *
+     * @param codec The codec
+     */
+    public void setCodec(AttributeCodec codec) {
+        this.codec = codec;
+    }
+
+    public AttributeCodec getCodec() {
+        return this.codec;
+    }
+
+    /**
+     *
+     * Sets how long (in millis) after a save the directory is synced, allowing saves
+     * made within that window to share one directory fsync.
+     * <br>
+     * Saves made through {@link #saveAll(List)} always sync once the whole batch has been written
+     *
+     * @param directorySyncWindow The window in millis
+     */
+    public void setDirectorySyncWindow(long directorySyncWindow) {
+        this.directorySyncWindow = Math.max(0L, directorySyncWindow);
     }
 
     public static Gson getGson() {
@@ -52,23 +131,29 @@ public class JsonSaveManager<T> extends AbstractSaveManager<T> {
         Preconditions.checkNotNull(attributeClass, "Cannot load attribute with null class");
         Preconditions.checkNotNull(id, "Cannot load attribute with null id");
 
-        return CompletableFuture.supplyAsync(() -> {
-                    var data = (PlayerManager.AttributeData<A, B, T>) this.registeredAttributes.get(attributeClass);
+        var data = (PlayerManager.AttributeData<A, B, T>) this.registeredAttributes.get(attributeClass);
 
-                    if (data.shared()) {
-                        A sharedAttribute = (A) this.getSharedAttribute(data.attributeClass(), id);
+        if (data != null && data.shared()) {
+            return this.<A>loadSharedAttribute(attributeClass, id, () -> {
+                        A sharedAttribute = this.readData(data, id);
+                        sharedAttribute.load(id);
+                        return sharedAttribute;
+                    })
+                    .exceptionally(throwable -> {
+                        UtilLogger.logger().ifPresent(logger -> logger.error("Error when loading attribute data for " + attributeClass.getName(), throwable));
+                        return null;
+                    });
+        }
 
-                        if (sharedAttribute == null) {
-                            sharedAttribute = this.readData(data, id);
-                            sharedAttribute.load(id);
-                            this.addSharedAttribute(id, sharedAttribute);
-                        }
+        return CompletableFuture.supplyAsync(() -> {
+                    A pending = (A) this.getPendingSave(attributeClass, id);
 
-                        return sharedAttribute;
-                    } else {
-                        return this.readData(data, id);
+                    if (pending != null) {
+                        return pending;
                     }
-                }, UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE)
+
+                    return this.readData(data, id);
+                }, UtilConcurrency.IO_EXECUTOR)
                 .exceptionally(throwable -> {
                     UtilLogger.logger().ifPresent(logger -> logger.error("Error when loading attribute data for " + attributeClass.getName(), throwable));
                     return null;
@@ -77,9 +162,29 @@ public class JsonSaveManager<T> extends AbstractSaveManager<T> {
 
     protected <A extends Attribute<B, T>, B> A readData(PlayerManager.AttributeData<A, B, T> data, B key) {
         String dataDirectory = this.attributeDirectories.get(data.attributeClass());
-        File file = Paths.get(dataDirectory, key.toString() + ".json").toFile();
+        var lock = this.getLock(dataDirectory, key);
+
+        lock.lock();
+
+        try {
+            return this.readData(data, dataDirectory, key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <A extends Attribute<B, T>, B> A readData(PlayerManager.AttributeData<A, B, T> data, String dataDirectory, B key) {
+        var codec = this.codec;
+        File file = Paths.get(dataDirectory, key.toString() + codec.getExtension()).toFile();
 
         if (!file.exists()) {
+            File legacyFile = Paths.get(dataDirectory, key.toString() + AttributeCodec.json().getExtension()).toFile();
+
+            if (codec != AttributeCodec.json() && legacyFile.exists()) {
+                A attribute = this.migrateFile(data.attributeClass(), legacyFile, file);
+                return attribute == null ? data.constructor().get() : attribute;
+            }
+
             try {
                 file.getParentFile().mkdirs();
                 Files.createFile(file.toPath());
@@ -89,9 +194,13 @@ public class JsonSaveManager<T> extends AbstractSaveManager<T> {
             return data.constructor().get();
         }
 
-        try (FileReader fileWriter = new FileReader(file)) {
-            return UtilGson.GSON.fromJson(new JsonReader(fileWriter), data.attributeClass());
-        } catch (IOException e) {
+        try {
+            A attribute = this.readFile(codec, data.attributeClass(), file);
+
+            if (attribute != null) {
+                return attribute;
+            }
+        } catch (Exception e) {
             UtilLogger.logger().ifPresent(logger -> logger.error("Error loading file for " + data.attributeClass().getName() + " for key " + key, e));
         }
 
@@ -101,21 +210,206 @@ public class JsonSaveManager<T> extends AbstractSaveManager<T> {
     @Override
     public <A> void saveData(A id, Attribute<A, T> attribute) {
         String dataDirectory = this.attributeDirectories.get(attribute.getClass());
-        File file = Paths.get(dataDirectory, id.toString() + ".json").toFile();
+        File file = Paths.get(dataDirectory, id.toString() + this.codec.getExtension()).toFile();
+        var lock = this.getLock(dataDirectory, id);
 
-        if (!file.exists()) {
+        lock.lock();
+
+        try {
+            file.getParentFile().mkdirs();
+            this.writeFile(this.codec, attribute, file);
+        } catch (IOException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("There was an error writing to the file", e));
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        this.scheduleDirectorySync();
+    }
+
+    /**
+     *
+     * Writes every save, then syncs the directories once.
+     * <br>
+     * Every save is attempted even if an earlier one fails, after which the first failure is thrown
+     * with any later failures suppressed
+     *
+     * @param saves The saves to write
+     */
+    @Override
+    public void saveAll(List<PendingSave<?, T>> saves) {
+        RuntimeException failure = null;
+
+        for (var save : saves) {
             try {
-                file.getParentFile().mkdirs();
-                Files.createFile(file.toPath());
-            } catch (IOException e) {
-                UtilLogger.logger().ifPresent(logger -> logger.error("There was an error creating the file", e));
+                save.save(this);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
             }
         }
 
-        try (FileWriter fileWriter = new FileWriter(file)) {
-            getGson().toJson(attribute, attribute.getClass(), new JsonWriter(fileWriter));
-        } catch (IOException e) {
-            UtilLogger.logger().ifPresent(logger -> logger.error("There was an error writing to the file", e));
+        this.syncDirectories();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     *
+     * Syncs every directory that has had a file renamed into it since the last sync,
+     * making those saves durable if the server crashes.
+     * <br>
+     * This is called automatically after saves, but should also be called once all players have been saved on shutdown
+     *
+     */
+    public void syncDirectories() {
+        this.directorySyncScheduled.set(false);
+
+        for (var iterator = this.dirtyDirectories.iterator(); iterator.hasNext(); ) {
+            var directory = iterator.next();
+            iterator.remove();
+
+            try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException ignored) {
+                // Some platforms (i.e. Windows) don't allow directories to be opened or synced
+            }
+        }
+    }
+
+    /**
+     *
+     * Writes anything left in the save queue and syncs the directories of any saves that haven't been synced yet
+     *
+     */
+    @Override
+    public void close() {
+        super.close();
+        this.syncDirectories();
+    }
+
+    protected void scheduleDirectorySync() {
+        if (!this.directorySyncScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        UtilConcurrency.runLater(() -> UtilConcurrency.runIO(this::syncDirectories), this.directorySyncWindow);
+    }
+
+    private ReentrantLock getLock(String dataDirectory, Object id) {
+        return this.locks[(Objects.hash(dataDirectory, id.toString()) & Integer.MAX_VALUE) % this.locks.length];
+    }
+
+    /**
+     *
+     * Converts all `.json` files for the attribute to the current codec, deleting the `.json` files once converted.
+     * <br>
+     * This will block the calling thread until every file has been converted
+     *
+     * @param attributeClass The attribute class
+     * @return The number of files converted
+     */
+    public int migrate(Class<? extends Attribute<?, T>> attributeClass) {
+        String dataDirectory = this.attributeDirectories.get(attributeClass);
+        var legacyExtension = AttributeCodec.json().getExtension();
+
+        if (dataDirectory == null || this.codec == AttributeCodec.json()) {
+            return 0;
+        }
+
+        File[] files = new File(dataDirectory).listFiles((dir, name) -> name.endsWith(legacyExtension));
+
+        if (files == null) {
+            return 0;
+        }
+
+        int migrated = 0;
+
+        for (File legacyFile : files) {
+            String id = legacyFile.getName().substring(0, legacyFile.getName().length() - legacyExtension.length());
+            File file = new File(legacyFile.getParentFile(), id + this.codec.getExtension());
+            var lock = this.getLock(dataDirectory, id);
+
+            lock.lock();
+
+            try {
+                if (this.migrateFile(attributeClass, legacyFile, file) != null) {
+                    ++migrated;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        this.syncDirectories();
+        return migrated;
+    }
+
+    private <A> A migrateFile(Class<A> attributeClass, File legacyFile, File file) {
+        try {
+            A attribute = this.readFile(AttributeCodec.json(), attributeClass, legacyFile);
+
+            if (attribute == null) {
+                return null;
+            }
+
+            this.writeFile(this.codec, attribute, file);
+            Files.delete(legacyFile.toPath());
+            return attribute;
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error migrating " + legacyFile.getPath() + " for " + attributeClass.getName(), e));
+        }
+
+        return null;
+    }
+
+    protected <A> A readFile(AttributeCodec codec, Class<A> attributeClass, File file) throws IOException {
+        var bytes = Files.readAllBytes(file.toPath());
+
+        if (bytes.length == 0) {
+            return null;
+        }
+
+        return codec.decode(getGson(), attributeClass, new ByteArrayInputStream(bytes));
+    }
+
+    private void writeFile(AttributeCodec codec, Object attribute, File file) throws IOException {
+        var buffer = BUFFER.get();
+        buffer.reset();
+
+        try {
+            codec.encode(getGson(), attribute, buffer);
+
+            var path = file.toPath();
+            var tempPath = path.resolveSibling(path.getFileName() + TEMP_EXTENSION);
+
+            try (var channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var bytes = buffer.toByteBuffer();
+
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+
+                channel.force(false);
+            }
+
+            try {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            this.dirtyDirectories.add(path.toAbsolutePath().getParent());
+        } finally {
+            if (buffer.size() > MAX_RETAINED_BUFFER) {
+                BUFFER.remove();
+            }
         }
     }
 
@@ -132,6 +426,7 @@ public class JsonSaveManager<T> extends AbstractSaveManager<T> {
         if (typeAdapter != null) {
             try {
                 GSON_BUILDER.registerTypeAdapter(attribute.attributeClass(), typeAdapter.value().newInstance());
+                gson = null;
             } catch (InstantiationException | IllegalAccessException e) {
                 UtilLogger.logger()
                         .ifPresent(logger -> logger.error(
@@ -160,4 +455,15 @@ public class JsonSaveManager<T> extends AbstractSaveManager<T> {
 
         return false;
     }
+
+    private static final class WriteBuffer extends ByteArrayOutputStream {
+
+        private WriteBuffer() {
+            super(8192);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(this.buf, 0, this.count);
+        }
+    }
 }
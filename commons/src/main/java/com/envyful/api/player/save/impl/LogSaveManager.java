@@ -0,0 +1,262 @@
+package com.envyful.api.player.save.impl;
+
+import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.PlayerManager;
+import com.envyful.api.player.save.codec.AttributeCodec;
+import com.google.common.collect.Maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Save manager storing each attribute class in an {@link AttributeLog} under its
+ * {@link com.envyful.api.player.save.attribute.DataDirectory}, instead of one file per id.
+ * <br>
+ * Saves append to the log and are made durable by one fsync per log, grouped in the same way as the
+ * {@link JsonSaveManager}'s directory syncs. Segments that are mostly overwritten data are compacted in the background.
+ * <br>
+ * Existing `.json` files in the data directory are imported into the log the first time they are loaded
+ *
+ * @param <T> The platform player type
+ */
+public class LogSaveManager<T> extends JsonSaveManager<T> {
+
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFER = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(8192));
+
+    private final Map<String, AttributeLog> logs = Maps.newConcurrentMap();
+
+    private long maxSegmentSize = 64L * 1024L * 1024L;
+    private double minLiveRatio = 0.5;
+    private ScheduledFuture<?> compactionTask;
+
+    public LogSaveManager(PlayerManager<?, T> playerManager) {
+        this(playerManager, AttributeCodec.binary());
+    }
+
+    public LogSaveManager(PlayerManager<?, T> playerManager, AttributeCodec codec) {
+        super(playerManager, codec);
+
+        this.setCompactionInterval(10, TimeUnit.MINUTES);
+    }
+
+    /**
+     *
+     * Sets the size in bytes after which a segment is sealed and a new one is started.
+     * <br>
+     * Only applies to logs opened after this is set
+     *
+     * @param maxSegmentSize The max segment size
+     */
+    public void setMaxSegmentSize(long maxSegmentSize) {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     *
+     * Sets the ratio (0 to 1) of a segment that must still be in use for it to be kept during compaction
+     *
+     * @param minLiveRatio The ratio
+     */
+    public void setMinLiveRatio(double minLiveRatio) {
+        this.minLiveRatio = minLiveRatio;
+    }
+
+    /**
+     *
+     * Sets how often the logs are compacted, replacing the previous compaction task
+     *
+     * @param interval The interval, or 0 to disable background compaction
+     * @param timeUnit The unit of the interval
+     */
+    public void setCompactionInterval(long interval, TimeUnit timeUnit) {
+        if (this.compactionTask != null) {
+            this.compactionTask.cancel(false);
+            this.compactionTask = null;
+        }
+
+        if (interval > 0) {
+            this.compactionTask = UtilConcurrency.SCHEDULED_EXECUTOR_SERVICE.scheduleAtFixedRate(
+                    () -> UtilConcurrency.runIO(this::compact), interval, interval, timeUnit);
+        }
+    }
+
+    @Override
+    protected <A extends Attribute<B, T>, B> A readData(PlayerManager.AttributeData<A, B, T> data, B key) {
+        try {
+            String dataDirectory = this.attributeDirectories.get(data.attributeClass());
+            var log = this.getLog(dataDirectory);
+            byte[] bytes = log.read(key.toString());
+
+            if (bytes == null) {
+                return this.importFile(data, dataDirectory, log, key);
+            }
+
+            A attribute = this.codec.decode(getGson(), data.attributeClass(), new ByteArrayInputStream(bytes));
+
+            if (attribute != null) {
+                return attribute;
+            }
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error loading log data for " + data.attributeClass().getName() + " for key " + key, e));
+        }
+
+        return data.constructor().get();
+    }
+
+    private <A extends Attribute<B, T>, B> A importFile(PlayerManager.AttributeData<A, B, T> data, String dataDirectory,
+                                                       AttributeLog log, B key) throws IOException {
+        File legacyFile = Paths.get(dataDirectory, key.toString() + AttributeCodec.json().getExtension()).toFile();
+
+        synchronized (log) {
+            byte[] bytes = log.read(key.toString());
+
+            if (bytes != null) {
+                return this.codec.decode(getGson(), data.attributeClass(), new ByteArrayInputStream(bytes));
+            }
+
+            if (!legacyFile.exists()) {
+                return data.constructor().get();
+            }
+
+            A attribute = this.readFile(AttributeCodec.json(), data.attributeClass(), legacyFile);
+
+            if (attribute == null) {
+                return data.constructor().get();
+            }
+
+            log.write(key.toString(), this.encode(attribute));
+            log.sync();
+            Files.delete(legacyFile.toPath());
+            return attribute;
+        }
+    }
+
+    @Override
+    public <A> void saveData(A id, Attribute<A, T> attribute) {
+        try {
+            this.getLog(this.attributeDirectories.get(attribute.getClass())).write(id.toString(), this.encode(attribute));
+        } catch (IOException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("There was an error writing to the log for " + attribute.getClass().getName(), e));
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("There was an error writing to the log for " + attribute.getClass().getName(), e));
+            throw e;
+        }
+
+        this.scheduleDirectorySync();
+    }
+
+    private byte[] encode(Object attribute) throws IOException {
+        var buffer = BUFFER.get();
+        buffer.reset();
+        this.codec.encode(getGson(), attribute, buffer);
+        var bytes = buffer.toByteArray();
+
+        if (buffer.size() > 1024 * 1024) {
+            BUFFER.remove();
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public void syncDirectories() {
+        super.syncDirectories();
+
+        for (var log : this.logs.values()) {
+            try {
+                log.sync();
+            } catch (IOException e) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error syncing attribute log", e));
+            }
+        }
+    }
+
+    /**
+     *
+     * Compacts the segments of every open log
+     *
+     * @return The number of segments removed
+     */
+    public int compact() {
+        int removed = 0;
+
+        for (var entry : this.logs.entrySet()) {
+            try {
+                removed += entry.getValue().compact(this.minLiveRatio);
+            } catch (IOException e) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error compacting attribute log in " + entry.getKey(), e));
+            }
+        }
+
+        return removed;
+    }
+
+    private AttributeLog getLog(String dataDirectory) {
+        return this.logs.computeIfAbsent(dataDirectory, directory -> {
+            try {
+                return new AttributeLog(Paths.get(directory), this.maxSegmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     *
+     * Writes anything left in the save queue, stops background compaction, and syncs and closes all the logs
+     *
+     */
+    @Override
+    public void close() {
+        super.close();
+        this.setCompactionInterval(0, TimeUnit.MILLISECONDS);
+
+        for (var entry : this.logs.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error closing attribute log in " + entry.getKey(), e));
+            }
+        }
+
+        this.logs.clear();
+    }
+
+    @Override
+    public boolean delete(String name) {
+        var log = this.logs.remove(name);
+
+        if (log == null) {
+            return super.delete(name);
+        }
+
+        try {
+            log.close();
+            File[] files = Paths.get(name).toFile().listFiles((dir, file) -> file.endsWith(".log"));
+
+            if (files != null) {
+                for (File file : files) {
+                    Files.delete(file.toPath());
+                }
+            }
+
+            return true;
+        } catch (IOException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error deleting attribute log " + name, e));
+        }
+
+        return false;
+    }
+}
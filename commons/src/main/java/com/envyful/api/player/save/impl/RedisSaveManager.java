@@ -0,0 +1,319 @@
+package com.envyful.api.player.save.impl;
+
+import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.concurrency.UtilLogger;
+import com.envyful.api.database.Database;
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.PlayerManager;
+import com.envyful.api.player.save.AbstractSaveManager;
+import com.envyful.api.player.save.PendingSave;
+import com.envyful.api.player.save.SaveManager;
+import com.envyful.api.player.save.attribute.TypeAdapter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.InstanceCreator;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * A save manager that keeps attributes in Redis in front of a slower backing save manager (i.e. the {@link SQLSaveManager}).
+ * <br>
+ * Loads are served from a Redis hash per attribute and id, and fall back to the backing save manager on a miss,
+ * after which the loaded attribute is written to Redis. Saves are written to Redis straight away and then passed to
+ * the backing save manager's {@link SaveManager#queueSave(Object, Attribute)}, so giving the backing
+ * save manager a {@link com.envyful.api.player.save.SaveQueue} will merge the slower writes.
+ * <br>
+ * A saved key is kept in Redis without an expiry until the backing save manager has confirmed the write,
+ * so data that only exists in Redis is never expired. {@link #close()} waits for any outstanding backing writes.
+ * <br>
+ * When servers on a network share the same Redis and backing store, a player switching servers is loaded
+ * using a single Redis round trip. Attributes are stored in Redis as JSON using Gson, so only non-transient fields are kept.
+ * {@link com.envyful.api.player.attribute.SharedAttribute}s are always loaded by the backing save manager
+ *
+ * @param <T> The platform player type
+ */
+public class RedisSaveManager<T> extends AbstractSaveManager<T> {
+
+    private static final String DATA_FIELD = "data";
+    private static final String SAVED_FIELD = "saved";
+
+    private final SaveManager<T> backing;
+    private final StatefulRedisConnection<String, String> connection;
+    private final GsonBuilder gsonBuilder = new GsonBuilder();
+    private final Map<String, CompletableFuture<Void>> backingWrites = Maps.newConcurrentMap();
+
+    private volatile Gson gson = null;
+    private String keyPrefix = "envyware:attributes";
+    private long expirySeconds = TimeUnit.DAYS.toSeconds(1);
+
+    public RedisSaveManager(PlayerManager<?, T> playerManager, Database redis, SaveManager<T> backing) {
+        super(playerManager);
+
+        this.backing = backing;
+        this.connection = redis.getRedis();
+    }
+
+    /**
+     *
+     * Sets the prefix used for the Redis keys. Servers sharing data must use the same prefix
+     *
+     * @param keyPrefix The key prefix
+     */
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    /**
+     *
+     * Sets how long an attribute is kept in Redis after it was last saved or loaded from the backing save manager
+     *
+     * @param expiry The expiry, or 0 to keep attributes forever
+     * @param timeUnit The unit of the expiry
+     */
+    public void setExpiry(long expiry, TimeUnit timeUnit) {
+        this.expirySeconds = timeUnit.toSeconds(expiry);
+    }
+
+    public SaveManager<T> getBacking() {
+        return this.backing;
+    }
+
+    /**
+     *
+     * Gets the number of saves written to Redis that the backing save manager has not confirmed yet
+     *
+     * @return The number of outstanding backing writes
+     */
+    public int getOutstandingBackingWrites() {
+        return this.backingWrites.size();
+    }
+
+    /**
+     *
+     * Writes anything left in the save queue, closes the backing save manager so its own queue is written,
+     * and then waits for any backing writes that are still outstanding
+     *
+     */
+    @Override
+    public void close() {
+        super.close();
+        this.backing.close();
+
+        for (var write : Lists.newArrayList(this.backingWrites.values())) {
+            try {
+                write.join();
+            } catch (Exception ignored) {
+                // Already logged when the backing write failed
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <A extends Attribute<B, T>, B> void registerAttribute(PlayerManager.AttributeData<A, B, T> attribute) {
+        TypeAdapter typeAdapter = attribute.attributeClass().getAnnotation(TypeAdapter.class);
+
+        synchronized (this.gsonBuilder) {
+            try {
+                if (typeAdapter != null) {
+                    this.gsonBuilder.registerTypeAdapter(attribute.attributeClass(), typeAdapter.value().getDeclaredConstructor().newInstance());
+                } else {
+                    this.gsonBuilder.registerTypeAdapter(attribute.attributeClass(), (InstanceCreator) type -> attribute.constructor().get());
+                }
+            } catch (ReflectiveOperationException e) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error registering type adapter for: " + attribute.attributeClass().getSimpleName(), e));
+            }
+
+            this.gson = null;
+        }
+
+        this.backing.registerAttribute(attribute);
+        super.registerAttribute(attribute);
+    }
+
+    private Gson getGson() {
+        var gson = this.gson;
+
+        if (gson == null) {
+            synchronized (this.gsonBuilder) {
+                gson = this.gsonBuilder.create();
+                this.gson = gson;
+            }
+        }
+
+        return gson;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<B, T>, B> CompletableFuture<A> loadAttribute(Class<? extends A> attributeClass, B id) {
+        var data = this.registeredAttributes.get(attributeClass);
+
+        if (data == null || data.shared()) {
+            return this.backing.loadAttribute(attributeClass, id);
+        }
+
+        A pending = (A) this.getPendingSave(attributeClass, id);
+
+        if (pending != null) {
+            return CompletableFuture.completedFuture(pending);
+        }
+
+        var key = this.getKey(attributeClass, id);
+
+        return this.connection.async().hget(key, DATA_FIELD)
+                .toCompletableFuture()
+                .thenApplyAsync(json -> json == null ? null : this.<A, B>decode(attributeClass, id, json), UtilConcurrency.IO_EXECUTOR)
+                .exceptionally(throwable -> {
+                    UtilLogger.logger().ifPresent(logger -> logger.error("Error loading " + attributeClass.getName() + " for " + id + " from Redis, falling back", throwable));
+                    return null;
+                })
+                .thenCompose(attribute -> {
+                    if (attribute != null) {
+                        return CompletableFuture.completedFuture(attribute);
+                    }
+
+                    return this.backing.<A, B>loadAttribute(attributeClass, id).thenApply(loaded -> {
+                        if (loaded != null) {
+                            this.write(key, loaded, true);
+                        }
+
+                        return loaded;
+                    });
+                });
+    }
+
+    private <A extends Attribute<B, T>, B> A decode(Class<? extends A> attributeClass, B id, String json) {
+        A attribute = this.getGson().fromJson(json, attributeClass);
+
+        if (attribute != null) {
+            attribute.setId(id);
+        }
+
+        return attribute;
+    }
+
+    @Override
+    public <A> void saveData(A id, Attribute<A, T> attribute) {
+        var key = this.getKey(attribute.getClass(), id);
+
+        this.write(key, attribute, false).toCompletableFuture().join();
+        this.queueBackingSave(key, id, attribute);
+    }
+
+    @Override
+    public void saveAll(List<PendingSave<?, T>> saves) {
+        List<RedisFuture<?>> writes = Lists.newArrayList();
+
+        for (var save : saves) {
+            writes.add(this.write(this.getKey(save.getAttributeClass(), save.getId()), save.getAttribute(), false));
+        }
+
+        RuntimeException failure = null;
+
+        for (int i = 0; i < saves.size(); i++) {
+            var save = saves.get(i);
+
+            try {
+                writes.get(i).toCompletableFuture().join();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+
+                continue;
+            }
+
+            this.queueBackingSave(save);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private <A> void queueBackingSave(PendingSave<A, T> save) {
+        this.queueBackingSave(this.getKey(save.getAttributeClass(), save.getId()), save.getId(), save.getAttribute());
+    }
+
+    private <A> void queueBackingSave(String key, A id, Attribute<A, T> attribute) {
+        CompletableFuture<Void> write;
+
+        try {
+            write = this.backing.queueSave(id, attribute);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+
+        var backingWrite = write;
+        this.backingWrites.put(key, backingWrite);
+
+        backingWrite.whenComplete((___, throwable) -> {
+            if (throwable != null) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error writing " + key + " to the backing save manager, keeping it in Redis without an expiry", throwable));
+            }
+
+            if (this.backingWrites.remove(key, backingWrite) && throwable == null && this.expirySeconds > 0) {
+                this.connection.async().expire(key, this.expirySeconds);
+            }
+        });
+    }
+
+    private RedisFuture<?> write(String key, Attribute<?, T> attribute, boolean expire) {
+        var commands = this.connection.async();
+        var future = commands.hset(key, Map.of(
+                DATA_FIELD, this.getGson().toJson(attribute, attribute.getClass()),
+                SAVED_FIELD, String.valueOf(System.currentTimeMillis())
+        ));
+
+        if (!expire) {
+            commands.persist(key);
+        } else if (this.expirySeconds > 0) {
+            commands.expire(key, this.expirySeconds);
+        }
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                UtilLogger.logger().ifPresent(logger -> logger.error("Error writing " + key + " to Redis", throwable));
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     *
+     * Removes the attribute from Redis so the next load reads it from the backing save manager
+     *
+     * @param attributeClass The attribute class
+     * @param id The id
+     * @return The future completed once the key has been removed
+     */
+    public CompletableFuture<Long> invalidate(Class<?> attributeClass, Object id) {
+        return this.connection.async().del(this.getKey(attributeClass, id)).toCompletableFuture();
+    }
+
+    private String getKey(Class<?> attributeClass, Object id) {
+        return this.keyPrefix + ":" + attributeClass.getName() + ":" + id;
+    }
+
+    @Override
+    public boolean delete(Database database, String name) {
+        return this.backing.delete(database, name);
+    }
+
+    @Override
+    public boolean delete(String name) {
+        return this.backing.delete(name);
+    }
+}
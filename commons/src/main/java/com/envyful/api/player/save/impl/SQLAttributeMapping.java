@@ -0,0 +1,470 @@
+package com.envyful.api.player.save.impl;
+
+import com.envyful.api.database.sql.SqlType;
+import com.envyful.api.json.UtilGson;
+import com.envyful.api.player.save.SaveHandlerFactory;
+import com.envyful.api.player.save.VariableSaveHandler;
+import com.envyful.api.player.save.attribute.ColumnData;
+import com.envyful.api.player.save.attribute.Queries;
+import com.envyful.api.player.save.attribute.SaveHandler;
+import com.google.common.collect.Lists;
+
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ *
+ * The SQL shape of an attribute class built from its {@link Queries} and {@link ColumnData} annotations.
+ * <br>
+ * The parameters for the update query are the attribute's id followed by every {@link ColumnData} field
+ * in the order they are declared (superclass fields first).
+ * <br>
+ * When bulk loading each {@link ColumnData} field is read back from the column of the same name
+ * <br>
+ * If {@link Queries#table()} is set, updates of only the changed columns can be generated. A statement is cached for
+ * each set of changed columns, up to {@link #MAX_DELTA_QUERIES}, after which other sets use the full update query
+ *
+ */
+public class SQLAttributeMapping {
+
+    public static final int MAX_DELTA_QUERIES = 64;
+
+    private final Class<?> attributeClass;
+    private final String updateQuery;
+    private final String loadQuery;
+    private final String bulkLoadQuery;
+    private final String idColumn;
+    private final String table;
+    private final List<Column> columns;
+    private final Map<Long, String> deltaQueries = Maps.newConcurrentMap();
+
+    private SQLAttributeMapping(Class<?> attributeClass, Queries queries, List<Column> columns) {
+        this.attributeClass = attributeClass;
+        this.updateQuery = queries.updateQuery();
+        this.loadQuery = queries.loadQuery();
+        this.bulkLoadQuery = queries.bulkLoadQuery();
+        this.idColumn = queries.idColumn();
+        this.table = queries.table();
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    public Class<?> getAttributeClass() {
+        return this.attributeClass;
+    }
+
+    public String getUpdateQuery() {
+        return this.updateQuery;
+    }
+
+    public String getLoadQuery() {
+        return this.loadQuery;
+    }
+
+    public String getIdColumn() {
+        return this.idColumn;
+    }
+
+    public List<Column> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     *
+     * Checks if the attribute provided a bulk load query
+     *
+     * @return True if the attribute can be bulk loaded
+     */
+    public boolean canBulkLoad() {
+        return !this.bulkLoadQuery.isEmpty();
+    }
+
+    /**
+     *
+     * Gets the bulk load query with a parameter for each of the ids being loaded
+     *
+     * @param ids The number of ids being loaded
+     * @return The query
+     */
+    public String getBulkLoadQuery(int ids) {
+        return String.format(this.bulkLoadQuery, String.join(", ", Collections.nCopies(ids, "?")));
+    }
+
+    /**
+     *
+     * Sets every {@link ColumnData} field of the attribute from the current row of the result set
+     *
+     * @param attribute The attribute
+     * @param resultSet The result set
+     * @throws SQLException If there is an error reading the row
+     */
+    public void populate(Object attribute, ResultSet resultSet) throws SQLException {
+        for (var column : this.columns) {
+            column.setValue(attribute, resultSet);
+        }
+    }
+
+    /**
+     *
+     * Converts the attribute into the parameters for the update query
+     *
+     * @param id The id of the attribute
+     * @param attribute The attribute
+     * @return The parameters
+     */
+    public List<SqlType> toParameters(Object id, Object attribute) {
+        List<SqlType> parameters = Lists.newArrayListWithCapacity(this.columns.size() + 1);
+
+        parameters.add(toSqlType(id, null));
+
+        for (var column : this.columns) {
+            parameters.add(column.toSqlType(attribute));
+        }
+
+        return parameters;
+    }
+
+    /**
+     *
+     * Reads the value of every {@link ColumnData} field in the form it's written to the database, so it can be
+     * compared with a later snapshot to find the changed columns
+     *
+     * @param attribute The attribute
+     * @return The column values
+     */
+    public Object[] snapshot(Object attribute) {
+        Object[] values = new Object[this.columns.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.columns.get(i).snapshot(attribute);
+        }
+
+        return values;
+    }
+
+    /**
+     *
+     * Converts the snapshot of the attribute into the parameters for the update query
+     *
+     * @param id The id of the attribute
+     * @param values The column values from {@link #snapshot(Object)}
+     * @return The parameters
+     */
+    public List<SqlType> toParameters(Object id, Object[] values) {
+        List<SqlType> parameters = Lists.newArrayListWithCapacity(values.length + 1);
+
+        parameters.add(toSqlType(id, null));
+
+        for (var value : values) {
+            parameters.add(toSqlType(value, null));
+        }
+
+        return parameters;
+    }
+
+    /**
+     *
+     * Checks if updates of only the changed columns can be generated for this attribute
+     *
+     * @return True if the attribute has a table and no more than 64 columns
+     */
+    public boolean canDeltaUpdate() {
+        return !this.table.isEmpty() && this.columns.size() <= Long.SIZE;
+    }
+
+    /**
+     *
+     * Finds the columns that differ between two snapshots
+     *
+     * @param previous The snapshot last written to the database
+     * @param current The current snapshot
+     * @return A bit mask with a bit set for each changed column
+     */
+    public long getChangedColumns(Object[] previous, Object[] current) {
+        long changed = 0L;
+
+        for (int i = 0; i < current.length; i++) {
+            if (!Objects.equals(previous[i], current[i])) {
+                changed |= 1L << i;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     *
+     * Gets the update query setting only the changed columns
+     *
+     * @param changedColumns The bit mask of changed columns
+     * @return The query, or null if too many different sets of columns have been cached already
+     */
+    @Nullable
+    public String getDeltaUpdateQuery(long changedColumns) {
+        var query = this.deltaQueries.get(changedColumns);
+
+        if (query != null || this.deltaQueries.size() >= MAX_DELTA_QUERIES) {
+            return query;
+        }
+
+        List<String> assignments = Lists.newArrayList();
+
+        for (int i = 0; i < this.columns.size(); i++) {
+            if ((changedColumns & (1L << i)) != 0) {
+                assignments.add(this.columns.get(i).getName() + " = ?");
+            }
+        }
+
+        query = "UPDATE " + this.table + " SET " + String.join(", ", assignments) + " WHERE " + this.idColumn + " = ?;";
+        var existing = this.deltaQueries.putIfAbsent(changedColumns, query);
+        return existing == null ? query : existing;
+    }
+
+    /**
+     *
+     * Converts the changed columns of the snapshot into the parameters for {@link #getDeltaUpdateQuery(long)}
+     *
+     * @param id The id of the attribute
+     * @param values The column values from {@link #snapshot(Object)}
+     * @param changedColumns The bit mask of changed columns
+     * @return The parameters
+     */
+    public List<SqlType> toDeltaParameters(Object id, Object[] values, long changedColumns) {
+        List<SqlType> parameters = Lists.newArrayListWithCapacity(Long.bitCount(changedColumns) + 1);
+
+        for (int i = 0; i < values.length; i++) {
+            if ((changedColumns & (1L << i)) != 0) {
+                parameters.add(toSqlType(values[i], null));
+            }
+        }
+
+        parameters.add(toSqlType(id, null));
+        return parameters;
+    }
+
+    /**
+     *
+     * Creates the mapping for the given class, if it has a {@link Queries} annotation and
+     * at least one {@link ColumnData} field
+     *
+     * @param attributeClass The attribute class
+     * @return The mapping or null if the class is not annotated
+     */
+    @Nullable
+    public static SQLAttributeMapping of(Class<?> attributeClass) {
+        Queries queries = attributeClass.getAnnotation(Queries.class);
+
+        if (queries == null) {
+            return null;
+        }
+
+        List<Column> columns = Lists.newArrayList();
+        findColumns(attributeClass, columns);
+
+        if (columns.isEmpty()) {
+            return null;
+        }
+
+        return new SQLAttributeMapping(attributeClass, queries, columns);
+    }
+
+    private static void findColumns(Class<?> clazz, List<Column> columns) {
+        if (clazz == null || clazz == Object.class) {
+            return;
+        }
+
+        findColumns(clazz.getSuperclass(), columns);
+
+        for (Field field : clazz.getDeclaredFields()) {
+            ColumnData columnData = field.getAnnotation(ColumnData.class);
+
+            if (columnData == null || Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            field.setAccessible(true);
+            columns.add(new Column(columnData.value(), field, getSaveHandler(field)));
+        }
+    }
+
+    @Nullable
+    private static VariableSaveHandler<?> getSaveHandler(Field field) {
+        SaveHandler saveHandler = field.getAnnotation(SaveHandler.class);
+
+        if (saveHandler == null) {
+            return null;
+        }
+
+        return SaveHandlerFactory.getSaveHandler(saveHandler.value());
+    }
+
+    private static SqlType toSqlType(Object value, @Nullable VariableSaveHandler<?> saveHandler) {
+        if (saveHandler != null) {
+            return SqlType.text(value == null ? null : saveHandler.convert(value));
+        }
+
+        if (value == null) {
+            return SqlType.text(null);
+        }
+
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return SqlType.integer(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            return SqlType.bigInt((Long) value);
+        } else if (value instanceof Double) {
+            return SqlType.decimal((Double) value);
+        } else if (value instanceof Float) {
+            return SqlType.floatingDecimal((Float) value);
+        } else if (value instanceof Boolean) {
+            return SqlType.bool((Boolean) value);
+        } else if (value instanceof Instant) {
+            return SqlType.timestamp((Instant) value);
+        } else if (value instanceof String || value instanceof Enum || value instanceof UUID) {
+            return SqlType.text(value.toString());
+        }
+
+        return SqlType.text(UtilGson.GSON.toJson(value));
+    }
+
+    /**
+     *
+     * A single {@link ColumnData} field of an attribute
+     *
+     */
+    public static class Column {
+
+        private final String name;
+        private final Field field;
+        private final VariableSaveHandler<?> saveHandler;
+
+        private Column(String name, Field field, @Nullable VariableSaveHandler<?> saveHandler) {
+            this.name = name;
+            this.field = field;
+            this.saveHandler = saveHandler;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public Field getField() {
+            return this.field;
+        }
+
+        /**
+         *
+         * Reads the current value of this column from the attribute
+         *
+         * @param attribute The attribute
+         * @return The value
+         */
+        public Object getValue(Object attribute) {
+            try {
+                return this.field.get(attribute);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read column " + this.name, e);
+            }
+        }
+
+        /**
+         *
+         * Reads the value of this column from the attribute in the form it's written to the database. Values that
+         * aren't stored as they are (i.e. collections) are converted to their text so later changes to them are seen
+         *
+         * @param attribute The attribute
+         * @return The value
+         */
+        public Object snapshot(Object attribute) {
+            var value = this.getValue(attribute);
+
+            if (value == null) {
+                return null;
+            }
+
+            if (this.saveHandler != null) {
+                return this.saveHandler.convert(value);
+            }
+
+            if (value instanceof Number || value instanceof Boolean || value instanceof Instant) {
+                return value;
+            } else if (value instanceof String || value instanceof Enum || value instanceof UUID) {
+                return value.toString();
+            }
+
+            return UtilGson.GSON.toJson(value);
+        }
+
+        public SqlType toSqlType(Object attribute) {
+            return SQLAttributeMapping.toSqlType(this.getValue(attribute), this.saveHandler);
+        }
+
+        /**
+         *
+         * Sets the value of this column on the attribute from the current row of the result set
+         *
+         * @param attribute The attribute
+         * @param resultSet The result set
+         * @throws SQLException If there is an error reading the column
+         */
+        public void setValue(Object attribute, ResultSet resultSet) throws SQLException {
+            try {
+                this.field.set(attribute, this.read(resultSet));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot set column " + this.name, e);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object read(ResultSet resultSet) throws SQLException {
+            Class<?> type = this.field.getType();
+
+            if (this.saveHandler != null) {
+                var value = resultSet.getString(this.name);
+                return value == null ? null : this.saveHandler.invert(value);
+            }
+
+            if (type == int.class || type == Integer.class) {
+                return resultSet.getInt(this.name);
+            } else if (type == long.class || type == Long.class) {
+                return resultSet.getLong(this.name);
+            } else if (type == double.class || type == Double.class) {
+                return resultSet.getDouble(this.name);
+            } else if (type == float.class || type == Float.class) {
+                return resultSet.getFloat(this.name);
+            } else if (type == boolean.class || type == Boolean.class) {
+                return resultSet.getBoolean(this.name);
+            } else if (type == short.class || type == Short.class) {
+                return resultSet.getShort(this.name);
+            } else if (type == byte.class || type == Byte.class) {
+                return resultSet.getByte(this.name);
+            }
+
+            if (type == Instant.class) {
+                var timestamp = resultSet.getTimestamp(this.name);
+                return timestamp == null ? null : timestamp.toInstant();
+            }
+
+            var value = resultSet.getString(this.name);
+
+            if (value == null || type == String.class) {
+                return value;
+            } else if (type == UUID.class) {
+                return UUID.fromString(value);
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, value);
+            }
+
+            return UtilGson.GSON.fromJson(value, this.field.getGenericType());
+        }
+    }
+}
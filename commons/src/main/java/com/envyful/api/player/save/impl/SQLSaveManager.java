@@ -1,15 +1,59 @@
 package com.envyful.api.player.save.impl;
 
+import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.concurrency.UtilLogger;
 import com.envyful.api.database.Database;
+import com.envyful.api.database.sql.UncheckedSQLException;
 import com.envyful.api.database.sql.UtilSql;
+import com.envyful.api.player.Attribute;
 import com.envyful.api.player.EnvyPlayer;
 import com.envyful.api.player.PlayerManager;
+import com.envyful.api.player.save.PendingSave;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
 
+import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 
+/**
+ *
+ * SQL implementation of the save manager.
+ * <br>
+ * Attributes annotated with {@link com.envyful.api.player.save.attribute.Queries} and
+ * {@link com.envyful.api.player.save.attribute.ColumnData} are written by the save manager using their update query,
+ * with saves of the same attribute class grouped into JDBC batches on a single connection.
+ * All other attributes are saved using {@link Attribute#save(Object)}
+ * <br>
+ * Attributes that also provide a {@link com.envyful.api.player.save.attribute.Queries#bulkLoadQuery()} are loaded
+ * by {@link #loadAttributes(Class, Collection)} in chunks using a single query per chunk
+ * <br>
+ * Attributes that also provide a {@link com.envyful.api.player.save.attribute.Queries#table()} only update the
+ * columns that changed since the save manager last loaded or saved them. The first save of an attribute not loaded
+ * in bulk, and any delta update that matches no row, use the full update query
+ *
+ * @param <T> The platform player type
+ */
 public class SQLSaveManager<T> extends EmptySaveManager<T> {
 
     private final Database database;
+    private final Map<Class<?>, SQLAttributeMapping> mappings = Maps.newConcurrentMap();
+
+    private final Map<Class<?>, Map<Object, CompletableFuture<Attribute<?, T>>>> queuedLoads = Maps.newHashMap();
+    private final Map<Attribute<?, ?>, Row> snapshots = new MapMaker().weakKeys().makeMap();
+    private final LongAdder unchangedSaves = new LongAdder();
+
+    private int maxBatchSize = 100;
+    private boolean transactional = true;
+    private long bulkLoadWindow = 0L;
 
     public SQLSaveManager(PlayerManager<?, T> playerManager, Database database) {
         super(playerManager);
@@ -23,6 +67,342 @@ public class SQLSaveManager<T> extends EmptySaveManager<T> {
         this.database = database;
     }
 
+    /**
+     *
+     * Sets the max number of rows sent to the database in a single batch
+     *
+     * @param maxBatchSize The max batch size
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     *
+     * Sets if all the batches for an attribute class should be committed in one transaction
+     *
+     * @param transactional If the batches are transactional
+     */
+    public void setTransactional(boolean transactional) {
+        this.transactional = transactional;
+    }
+
+    /**
+     *
+     * Sets how long (in millis) single loads of attributes with a bulk load query are held so
+     * they can be loaded together, for example when many players join after a restart.
+     * <br>
+     * Set to 0 (the default) to load every attribute as soon as it is requested
+     *
+     * @param bulkLoadWindow The time in millis to wait
+     */
+    public void setBulkLoadWindow(long bulkLoadWindow) {
+        this.bulkLoadWindow = bulkLoadWindow;
+    }
+
+    @Override
+    public <A extends Attribute<B, T>, B> void registerAttribute(PlayerManager.AttributeData<A, B, T> attribute) {
+        var mapping = SQLAttributeMapping.of(attribute.attributeClass());
+
+        if (mapping != null) {
+            this.mappings.put(attribute.attributeClass(), mapping);
+        }
+
+        super.registerAttribute(attribute);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<B, T>, B> CompletableFuture<A> loadAttribute(Class<? extends A> attributeClass, B id) {
+        if (this.bulkLoadWindow <= 0 || this.getBulkMapping(attributeClass) == null) {
+            return super.loadAttribute(attributeClass, id);
+        }
+
+        synchronized (this.queuedLoads) {
+            var queued = this.queuedLoads.get(attributeClass);
+
+            if (queued == null) {
+                queued = Maps.newHashMap();
+                this.queuedLoads.put(attributeClass, queued);
+                UtilConcurrency.runLater(() -> this.loadQueued(attributeClass), this.bulkLoadWindow);
+            }
+
+            return (CompletableFuture<A>) queued.computeIfAbsent(id, ___ -> new CompletableFuture<>());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <A extends Attribute<B, T>, B> void loadQueued(Class<? extends A> attributeClass) {
+        Map<Object, CompletableFuture<Attribute<?, T>>> queued;
+
+        synchronized (this.queuedLoads) {
+            queued = this.queuedLoads.remove(attributeClass);
+        }
+
+        if (queued == null) {
+            return;
+        }
+
+        var loading = this.loadAttributes(attributeClass, (Collection<B>) queued.keySet());
+
+        for (var entry : loading.entrySet()) {
+            var future = queued.get(entry.getKey());
+            entry.getValue().whenComplete((attribute, throwable) -> future.complete(attribute));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends Attribute<B, T>, B> Map<B, CompletableFuture<A>> loadAttributes(Class<? extends A> attributeClass, Collection<B> ids) {
+        var mapping = this.getBulkMapping(attributeClass);
+
+        if (mapping == null) {
+            return super.loadAttributes(attributeClass, ids);
+        }
+
+        var data = (PlayerManager.AttributeData<A, B, T>) this.registeredAttributes.get(attributeClass);
+        Map<B, CompletableFuture<A>> loading = Maps.newLinkedHashMap();
+
+        for (B id : ids) {
+            loading.put(id, new CompletableFuture<>());
+        }
+
+        for (List<B> chunk : Lists.partition(Lists.newArrayList(loading.keySet()), this.maxBatchSize)) {
+            UtilConcurrency.runIO(() -> this.bulkLoad(data, mapping, chunk, loading));
+        }
+
+        return loading;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <A extends Attribute<B, T>, B> void bulkLoad(PlayerManager.AttributeData<A, B, T> data, SQLAttributeMapping mapping,
+                                                         List<B> ids, Map<B, CompletableFuture<A>> loading) {
+        Map<String, B> remaining = Maps.newHashMap();
+
+        for (B id : ids) {
+            A pending = (A) this.getPendingSave(data.attributeClass(), id);
+
+            if (pending != null) {
+                loading.get(id).complete(pending);
+            } else {
+                remaining.put(id.toString(), id);
+            }
+        }
+
+        if (remaining.isEmpty()) {
+            return;
+        }
+
+        try (var connection = this.database.getConnection();
+             var preparedStatement = connection.prepareStatement(mapping.getBulkLoadQuery(remaining.size()))) {
+            int parameter = 0;
+
+            for (String id : remaining.keySet()) {
+                preparedStatement.setString(++parameter, id);
+            }
+
+            try (var resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    String key = resultSet.getString(mapping.getIdColumn());
+                    B id = remaining.get(key);
+
+                    if (id == null) {
+                        continue;
+                    }
+
+                    A attribute = data.constructor().get();
+                    mapping.populate(attribute, resultSet);
+                    attribute.setId(id);
+
+                    if (mapping.canDeltaUpdate()) {
+                        this.snapshots.put(attribute, new Row(id, mapping.snapshot(attribute)));
+                    }
+
+                    loading.get(id).complete(attribute);
+                    remaining.remove(key);
+                }
+            }
+
+            for (B id : remaining.values()) {
+                A attribute = data.constructor().get();
+                attribute.setId(id);
+                loading.get(id).complete(attribute);
+            }
+        } catch (Exception e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error when bulk loading attribute data for " + data.attributeClass().getName(), e));
+
+            for (B id : remaining.values()) {
+                loading.get(id).complete(null);
+            }
+        }
+    }
+
+    @Nullable
+    private SQLAttributeMapping getBulkMapping(Class<?> attributeClass) {
+        var mapping = this.mappings.get(attributeClass);
+        var data = this.registeredAttributes.get(attributeClass);
+
+        if (mapping == null || !mapping.canBulkLoad() || data == null || data.shared()) {
+            return null;
+        }
+
+        return mapping;
+    }
+
+    @Override
+    public <A> void saveData(A id, Attribute<A, T> attribute) {
+        if (!this.mappings.containsKey(attribute.getClass())) {
+            super.saveData(id, attribute);
+            return;
+        }
+
+        this.saveAll(Collections.singletonList(new PendingSave<>(id, attribute)));
+    }
+
+    /**
+     *
+     * Writes the saves, grouping the attributes with an update query into batches by attribute class.
+     * <br>
+     * Every batch is attempted even if an earlier one fails, after which the first failure is thrown
+     * (as an {@link UncheckedSQLException} for database errors) with any later failures suppressed
+     *
+     * @param saves The saves to write
+     */
+    @Override
+    public void saveAll(List<PendingSave<?, T>> saves) {
+        Map<SQLAttributeMapping, List<PendingSave<?, T>>> batches = Maps.newHashMap();
+        RuntimeException failure = null;
+
+        for (var save : saves) {
+            var mapping = this.mappings.get(save.getAttribute().getClass());
+
+            if (mapping == null) {
+                try {
+                    save.save(this);
+                } catch (RuntimeException e) {
+                    failure = this.addFailure(failure, e);
+                }
+            } else if (save.getAttribute().shouldSave()) {
+                batches.computeIfAbsent(mapping, ___ -> Lists.newArrayList()).add(save);
+            }
+        }
+
+        if (batches.isEmpty()) {
+            if (failure != null) {
+                throw failure;
+            }
+
+            return;
+        }
+
+        try (var connection = this.database.getConnection()) {
+            for (var entry : batches.entrySet()) {
+                var mapping = entry.getKey();
+
+                try {
+                    if (mapping.canDeltaUpdate()) {
+                        this.saveChanges(connection, mapping, entry.getValue());
+                    } else {
+                        UtilSql.executeBatchUpdate(connection, mapping.getUpdateQuery(), entry.getValue(),
+                                save -> mapping.toParameters(save.getId(), save.getAttribute()),
+                                this.maxBatchSize, this.transactional);
+                    }
+                } catch (SQLException e) {
+                    UtilLogger.logger().ifPresent(logger -> logger.error("Error batch saving " + entry.getValue().size() + " attributes for " + mapping.getAttributeClass().getName(), e));
+                    failure = this.addFailure(failure, new UncheckedSQLException(e));
+                }
+            }
+        } catch (SQLException e) {
+            UtilLogger.logger().ifPresent(logger -> logger.error("Error getting connection to batch save " + saves.size() + " attributes", e));
+            failure = this.addFailure(failure, new UncheckedSQLException(e));
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private RuntimeException addFailure(@Nullable RuntimeException failure, RuntimeException e) {
+        if (failure == null) {
+            return e;
+        }
+
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    private void saveChanges(Connection connection, SQLAttributeMapping mapping, List<PendingSave<?, T>> saves) throws SQLException {
+        Map<Long, List<PendingSave<?, T>>> changes = Maps.newHashMap();
+        List<PendingSave<?, T>> fullUpdates = Lists.newArrayList();
+        Map<PendingSave<?, T>, Row> rows = Maps.newIdentityHashMap();
+
+        for (var save : saves) {
+            var row = new Row(save.getId(), mapping.snapshot(save.getAttribute()));
+            var previous = this.snapshots.get(save.getAttribute());
+
+            rows.put(save, row);
+
+            if (previous == null || !previous.id.equals(row.id)) {
+                fullUpdates.add(save);
+                continue;
+            }
+
+            long changedColumns = mapping.getChangedColumns(previous.values, row.values);
+
+            if (changedColumns == 0) {
+                this.unchangedSaves.increment();
+                continue;
+            }
+
+            if (mapping.getDeltaUpdateQuery(changedColumns) == null) {
+                fullUpdates.add(save);
+            } else {
+                changes.computeIfAbsent(changedColumns, ___ -> Lists.newArrayList()).add(save);
+            }
+        }
+
+        for (var entry : changes.entrySet()) {
+            long changedColumns = entry.getKey();
+            var changed = entry.getValue();
+            int[] results = UtilSql.executeBatchUpdate(connection, mapping.getDeltaUpdateQuery(changedColumns), changed,
+                    save -> mapping.toDeltaParameters(save.getId(), rows.get(save).values, changedColumns),
+                    this.maxBatchSize, this.transactional);
+
+            for (int i = 0; i < changed.size(); i++) {
+                var save = changed.get(i);
+
+                if (results[i] == 0) {
+                    fullUpdates.add(save);
+                } else {
+                    this.snapshots.put(save.getAttribute(), rows.get(save));
+                }
+            }
+        }
+
+        if (fullUpdates.isEmpty()) {
+            return;
+        }
+
+        UtilSql.executeBatchUpdate(connection, mapping.getUpdateQuery(), fullUpdates,
+                save -> mapping.toParameters(save.getId(), rows.get(save).values),
+                this.maxBatchSize, this.transactional);
+
+        for (var save : fullUpdates) {
+            this.snapshots.put(save.getAttribute(), rows.get(save));
+        }
+    }
+
+    /**
+     *
+     * Gets the number of saves of attributes with a {@link com.envyful.api.player.save.attribute.Queries#table()}
+     * that were skipped because none of their columns had changed since they were last loaded or saved
+     *
+     * @return The number of skipped saves
+     */
+    public long getUnchangedSaves() {
+        return this.unchangedSaves.sum();
+    }
+
     @Override
     public boolean delete(Database database, String name) {
         UtilSql.update(database).query("DELETE FROM " + name + ";").executeAsync();
@@ -34,4 +414,22 @@ public class SQLSaveManager<T> extends EmptySaveManager<T> {
         UtilSql.update(this.database).query("DELETE FROM " + name + ";").executeAsync();
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     *
+     * The column values of an attribute as they were last written to, or read from, the database.
+     * <br>
+     * Must not reference the attribute, as it is the value of a weak keyed map keyed by the attribute
+     *
+     */
+    private static final class Row {
+
+        private final Object id;
+        private final Object[] values;
+
+        private Row(Object id, Object[] values) {
+            this.id = id;
+            this.values = values;
+        }
+    }
+}
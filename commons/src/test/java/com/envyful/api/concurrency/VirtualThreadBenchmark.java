@@ -0,0 +1,59 @@
+package com.envyful.api.concurrency;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Compares the throughput of the platform thread and virtual thread I/O lanes
+ * when running many concurrent loads that spend most of their time blocked.
+ * <br>
+ * Run with `java VirtualThreadBenchmark [loads] [latencyMillis] [platformThreads]`.
+ * On runtimes older than Java 21 only the platform thread lane is measured
+ *
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int loads = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50L;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : UtilConcurrency.IO_THREADS;
+
+        run("platform (" + threads + " threads)", ExecutorLane.fixed("benchmark_platform", threads), loads, latency);
+
+        if (ExecutorLane.isVirtualSupported()) {
+            run("virtual", ExecutorLane.virtual("benchmark_virtual", threads), loads, latency);
+        } else {
+            System.out.println("virtual: not supported on Java " + System.getProperty("java.version"));
+        }
+    }
+
+    private static void run(String name, ExecutorLane lane, int loads, long latency) throws Exception {
+        // Warm up the lane so thread creation isn't counted
+        simulateLoads(lane, Math.min(loads, 100), 1L);
+
+        long start = System.nanoTime();
+        simulateLoads(lane, loads, latency);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.printf("%s: %d loads of %dms in %dms (%.1f loads/s)%n",
+                name, loads, latency, elapsed, loads * 1000.0 / Math.max(1, elapsed));
+        lane.shutdown(10, TimeUnit.SECONDS);
+    }
+
+    private static void simulateLoads(ExecutorLane lane, int loads, long latency) {
+        var futures = new CompletableFuture<?>[loads];
+
+        for (int i = 0; i < loads; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, lane);
+        }
+
+        CompletableFuture.allOf(futures).join();
+    }
+}
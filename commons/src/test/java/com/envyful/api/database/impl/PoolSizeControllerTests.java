@@ -0,0 +1,42 @@
+package com.envyful.api.database.impl;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class PoolSizeControllerTests {
+
+    // Checks that the pool only grows after the wait has been high for enough checks, and shrinks back once it's idle
+    @Test
+    void sustainedWaitTest() {
+        var config = new HikariConfig();
+        var metrics = new PoolMetrics(0);
+        var tracker = metrics.create("test", null);
+        var controller = PoolSizeController.builder()
+                .bounds(4, 8)
+                .step(2)
+                .growWait(20)
+                .shrinkWait(1)
+                .sustainedChecks(2)
+                .checkInterval(1, TimeUnit.HOURS)
+                .build();
+
+        config.setMaximumPoolSize(4);
+        controller.start(config, metrics);
+
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        controller.check();
+        assert config.getMaximumPoolSize() == 4;
+
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        controller.check();
+        assert config.getMaximumPoolSize() == 6;
+
+        controller.check();
+        controller.check();
+        assert config.getMaximumPoolSize() == 4;
+
+        controller.stop();
+    }
+}
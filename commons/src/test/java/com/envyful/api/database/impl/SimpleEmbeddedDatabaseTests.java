@@ -0,0 +1,89 @@
+package com.envyful.api.database.impl;
+
+import com.envyful.api.database.sql.SqlType;
+import com.envyful.api.database.sql.UtilSql;
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SimpleEmbeddedDatabaseTests {
+
+    // Checks that MySQL style upserts and streamed queries work against the embedded database
+    @Test
+    void mysqlCompatibilityTest(@TempDir Path directory) throws Exception {
+        var database = new SimpleEmbeddedDatabase("test", directory.resolve("test"));
+
+        try {
+            UtilSql.update(database).query("CREATE TABLE `stats` (uuid VARCHAR(36) PRIMARY KEY, kills INT);").execute();
+            UtilSql.upsert(List.of(1, 2, 3)).database(database)
+                    .table("stats")
+                    .columns("uuid", "kills")
+                    .updateColumns("kills")
+                    .converter(i -> List.of(SqlType.text("player" + (i % 2)), SqlType.integer(i)))
+                    .execute();
+
+            try (var rows = UtilSql.<String>query(database)
+                    .query("SELECT * FROM `stats` ORDER BY kills DESC;")
+                    .converter(resultSet -> resultSet.getString("uuid") + "=" + resultSet.getInt("kills"))
+                    .stream()) {
+                assert rows.collect(Collectors.toList()).equals(List.of("player1=3", "player0=2"));
+            }
+        } finally {
+            database.close();
+        }
+    }
+
+    // Checks that queries read from the replica unless they ask for the primary, or run while reading the primary,
+    // and updates go to the primary
+    @Test
+    void replicaRoutingTest(@TempDir Path directory) throws Exception {
+        var database = new SimpleEmbeddedDatabase("test", directory.resolve("primary"));
+        var replicaConfig = new HikariConfig();
+
+        replicaConfig.setJdbcUrl("jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        database.addReplica(replicaConfig);
+
+        try (var connection = DriverManager.getConnection("jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1");
+             var statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE names (name VARCHAR(16));");
+            statement.execute("INSERT INTO names VALUES ('replica');");
+        }
+
+        try {
+            UtilSql.update(database).query("CREATE TABLE names (name VARCHAR(16));").execute();
+            UtilSql.update(database).query("INSERT INTO names VALUES ('primary');").execute();
+
+            assert UtilSql.<String>query(database).query("SELECT name FROM names;").converter(resultSet -> resultSet.getString(1))
+                    .executeWithConverter().equals(List.of("replica"));
+            assert UtilSql.<String>query(database).query("SELECT name FROM names;").converter(resultSet -> resultSet.getString(1))
+                    .primary().executeWithConverter().equals(List.of("primary"));
+            assert UtilSql.readingPrimary(() -> UtilSql.<String>query(database).query("SELECT name FROM names;")
+                    .converter(resultSet -> resultSet.getString(1)).executeWithConverter()).equals(List.of("primary"));
+        } finally {
+            database.close();
+        }
+    }
+
+    // Checks that the copied result set returned by a plain query can read aliased columns by their alias
+    @Test
+    void columnLabelTest(@TempDir Path directory) throws Exception {
+        var database = new SimpleEmbeddedDatabase("test", directory.resolve("test"));
+
+        try {
+            UtilSql.update(database).query("CREATE TABLE names (name VARCHAR(16));").execute();
+            UtilSql.update(database).query("INSERT INTO names VALUES ('Steve');").execute();
+
+            try (var resultSet = UtilSql.query(database).query("SELECT name AS alias FROM names;").execute()) {
+                assert resultSet.next();
+                assert resultSet.getString("alias").equals("Steve");
+            }
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.envyful.api.database.sql;
+
+import com.envyful.api.database.Database;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Compares the time and garbage per update of {@link UtilSql#update(Database)} against a {@link PreparedQuery}
+ * binder, and against calling the statement directly as the floor.
+ * <br>
+ * The connection and statement are stubs that do nothing, so only the cost of binding the parameters is measured.
+ * The stubs are proxies which box their arguments, so that garbage is included in every row.
+ * <br>
+ * Run with `java PreparedQueryBenchmark [updates]`
+ *
+ */
+public class PreparedQueryBenchmark {
+
+    private static final String QUERY = "UPDATE stats SET kills = kills + ?, last_seen = ? WHERE uuid = ?;";
+    private static final String UUID = "069a79f4-44e9-4726-a5be-fca90e38aaf5";
+
+    public static void main(String[] args) throws Exception {
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        var statement = stub(PreparedStatement.class, null);
+        var connection = stub(Connection.class, statement);
+        Database database = new Database() {
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void close() {}
+        };
+        var preparedQuery = PreparedQuery.builder()
+                .query(QUERY)
+                .parameters(PreparedQuery.Type.INT, PreparedQuery.Type.LONG, PreparedQuery.Type.STRING)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            run("builder", updates, () -> {
+                for (int j = 0; j < updates; j++) {
+                    UtilSql.update(database)
+                            .query(QUERY)
+                            .data(SqlType.integer(j), SqlType.bigInt(j), SqlType.text(UUID))
+                            .execute();
+                }
+            });
+
+            run("prepared", updates, () -> {
+                try (var binder = preparedQuery.open(database)) {
+                    for (int j = 0; j < updates; j++) {
+                        binder.bindInt(1, j).bindLong(2, j).bindString(3, UUID).executeUpdate();
+                    }
+                }
+            });
+
+            run("statement", updates, () -> {
+                for (int j = 0; j < updates; j++) {
+                    statement.setInt(1, j);
+                    statement.setLong(2, j);
+                    statement.setString(3, UUID);
+                    statement.executeUpdate();
+                }
+            });
+        }
+    }
+
+    private static void run(String name, int updates, Updates task) throws Exception {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        task.run();
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        System.out.printf("%s: %.2fns/update, %.1f bytes/update (%dms)%n", name, (double) elapsed / updates,
+                (double) allocated / updates, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private static <T> T stub(Class<T> type, Object returned) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("prepareStatement")) {
+                return returned;
+            }
+
+            if (method.getReturnType() == int.class) {
+                return 1;
+            }
+
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+
+            return null;
+        }));
+    }
+
+    private interface Updates {
+
+        void run() throws Exception;
+
+    }
+}
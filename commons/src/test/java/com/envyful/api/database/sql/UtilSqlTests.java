@@ -0,0 +1,46 @@
+package com.envyful.api.database.sql;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+public class UtilSqlTests {
+
+    // Checks that the rows are split into multi-row upserts that each stay under the max packet size
+    @Test
+    void upsertChunkingTest() throws Exception {
+        List<String> queries = Lists.newArrayList();
+        var statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class},
+                (proxy, method, args) -> method.getName().equals("executeUpdate") ? 1 : null);
+        var connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        queries.add((String) args[0]);
+                        return statement;
+                    }
+
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+        List<Integer> rows = Lists.newArrayList();
+
+        for (int i = 0; i < 100; i++) {
+            rows.add(i);
+        }
+
+        int affected = UtilSql.executeUpsert(connection, "stats", new String[]{"uuid", "kills"}, new String[]{"kills"},
+                rows, row -> List.of(SqlType.text("069a79f4-44e9-4726-a5be-fca90e38aaf5"), SqlType.integer(row)), 3000, false);
+
+        assert affected == queries.size();
+        assert queries.size() > 1;
+        assert queries.get(0).startsWith("INSERT INTO stats (uuid, kills) VALUES (?, ?), (?, ?)");
+        assert queries.get(0).endsWith(" ON DUPLICATE KEY UPDATE kills = VALUES(kills);");
+
+        for (var query : queries) {
+            assert query.length() < 3000;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.envyful.api.player;
+
+import com.google.common.collect.Maps;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Compares the cost of looking up a player's attribute in a map keyed by class (the previous storage)
+ * against the slot indexed array now used by {@link AbstractEnvyPlayer}.
+ * <br>
+ * Run with `java AttributeLookupBenchmark [lookups]`
+ *
+ */
+public class AttributeLookupBenchmark {
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Class<?>[] CLASSES = {
+            Integer.class, Long.class, Double.class, Float.class, Short.class, Byte.class,
+            String.class, StringBuilder.class, Character.class, Boolean.class, Object.class, Number.class
+    };
+
+    public static void main(String[] args) {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        Map<Class<?>, Object> map = Maps.newHashMap();
+        var slots = new Object[CLASSES.length];
+
+        for (var type : CLASSES) {
+            map.put(type, type.getName());
+            slots[AttributeSlots.getSlot(type)] = type.getName();
+        }
+
+        for (int i = 0; i < 3; i++) {
+            run("map", lookups, () -> {
+                int found = 0;
+
+                for (int j = 0; j < lookups; j++) {
+                    if (map.get(CLASSES[j % CLASSES.length]) != null) {
+                        ++found;
+                    }
+                }
+
+                return found;
+            });
+
+            run("slots", lookups, () -> {
+                int found = 0;
+
+                for (int j = 0; j < lookups; j++) {
+                    if (SLOT.getVolatile(slots, AttributeSlots.getSlot(CLASSES[j % CLASSES.length])) != null) {
+                        ++found;
+                    }
+                }
+
+                return found;
+            });
+        }
+    }
+
+    private static void run(String name, int lookups, Lookup lookup) {
+        long start = System.nanoTime();
+        int found = lookup.run();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%s: %.2fns/lookup (%d found in %dms)%n", name, (double) elapsed / lookups,
+                found, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private interface Lookup {
+
+        int run();
+
+    }
+}
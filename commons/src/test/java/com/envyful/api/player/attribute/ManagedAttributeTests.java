@@ -0,0 +1,60 @@
+package com.envyful.api.player.attribute;
+
+import com.envyful.api.player.save.SaveManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+public class ManagedAttributeTests {
+
+    // Checks that a tracked attribute is only dirty after a change, and stays dirty if it changes during a save
+    @Test
+    void dirtyTrackingTest() {
+        var attribute = new TrackedAttribute();
+
+        assert !attribute.isDirty();
+
+        attribute.markDirty();
+        assert attribute.isDirty();
+
+        long version = attribute.getVersion();
+        attribute.markDirty();
+        attribute.markSaved(version);
+        assert attribute.isDirty();
+
+        attribute.markSaved(attribute.getVersion());
+        assert !attribute.isDirty();
+    }
+
+    private static class TrackedAttribute extends ManagedAttribute<String, Object, Object> {
+
+        private TrackedAttribute() {
+            super(null);
+        }
+
+        @Override
+        protected boolean isDirtyTracked() {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<String> getId() {
+            return CompletableFuture.completedFuture(this.id);
+        }
+
+        @Override
+        public void load(String id) {}
+
+        @Override
+        public void save(String id) {}
+
+        @Override
+        public void deleteAll(SaveManager<?> saveManager) {}
+
+        @Override
+        protected void load() {}
+
+        @Override
+        protected void save() {}
+    }
+}
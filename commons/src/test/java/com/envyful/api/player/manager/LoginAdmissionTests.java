@@ -0,0 +1,39 @@
+package com.envyful.api.player.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoginAdmissionTests {
+
+    // Checks that a load that times out is retried, and the player is admitted once it succeeds
+    @Test
+    void retryTest() {
+        var admission = LoginAdmission.builder().timeout(50, TimeUnit.MILLISECONDS).maxRetries(1).build();
+        var attempts = new AtomicInteger();
+
+        var result = admission.admit(null, () -> attempts.incrementAndGet() == 1 ?
+                new CompletableFuture<>() : CompletableFuture.completedFuture(null)).join();
+
+        assert result.isAdmitted();
+        assert result.getAttempts() == 2;
+        assert admission.getTimeouts() == 1;
+        assert admission.getRetries() == 1;
+    }
+
+    // Checks that the player is kicked once the retries have been used up
+    @Test
+    void kickTest() {
+        var admission = LoginAdmission.builder().timeout(20, TimeUnit.MILLISECONDS).maxRetries(2).build();
+
+        var result = admission.admit(null, CompletableFuture::new).join();
+
+        assert !result.isAdmitted();
+        assert result.getOutcome() == LoginAdmission.Outcome.TIMED_OUT;
+        assert result.getAttempts() == 3;
+        assert admission.getKicked() == 1;
+        assert admission.getMaxWaitMillis() >= 60;
+    }
+}
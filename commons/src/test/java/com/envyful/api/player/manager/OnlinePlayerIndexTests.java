@@ -0,0 +1,109 @@
+package com.envyful.api.player.manager;
+
+import com.envyful.api.player.EnvyPlayer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OnlinePlayerIndexTests {
+
+    // Checks that players can be found by name ignoring case and by prefix, and are unindexed when removed
+    @Test
+    void nameLookupTest() {
+        var index = new OnlinePlayerIndex<EnvyPlayer<Object>>();
+        var alex = UUID.randomUUID();
+        var alice = UUID.randomUUID();
+
+        index.add(alex, player(new AtomicReference<>("Alex")));
+        index.add(alice, player(new AtomicReference<>("alice")));
+        index.add(UUID.randomUUID(), player(new AtomicReference<>("Bob")));
+
+        assert index.getByName("ALEX") == index.get(alex);
+        assert index.getByPrefix("al").size() == 2;
+        assert index.getByPrefix("Ali").get(0) == index.get(alice);
+
+        index.remove(alex);
+
+        assert index.getByName("alex") == null;
+        assert index.getByPrefix("al").size() == 1;
+    }
+
+    // Checks that a player added before their name is known is indexed once it's updated, and moved on a rename
+    @Test
+    void updateNameTest() {
+        var index = new OnlinePlayerIndex<EnvyPlayer<Object>>();
+        var uuid = UUID.randomUUID();
+        var name = new AtomicReference<String>(null);
+
+        index.add(uuid, player(name));
+        assert index.getByPrefix("").isEmpty();
+
+        name.set("Steve");
+        index.updateName(uuid);
+        assert index.getByName("steve") != null;
+
+        name.set("Herobrine");
+        index.updateName(uuid);
+        assert index.getByName("steve") == null;
+        assert index.getByName("herobrine") == index.get(uuid);
+    }
+
+    // Checks that re-adding a UUID with a new player instance (i.e. rejoining before the old player is removed)
+    // points the name indexes at the new player, and that removing it unindexes the name
+    @Test
+    void rejoinTest() {
+        var index = new OnlinePlayerIndex<EnvyPlayer<Object>>();
+        var uuid = UUID.randomUUID();
+        var rejoined = player(new AtomicReference<>("Steve"));
+
+        index.add(uuid, player(new AtomicReference<>("Steve")));
+        index.add(uuid, rejoined);
+
+        assert index.getByName("steve") == rejoined;
+        assert index.getByPrefix("ste").get(0) == rejoined;
+
+        index.remove(uuid);
+
+        assert index.getByName("steve") == null;
+        assert index.getByPrefix("ste").isEmpty();
+    }
+
+    // Checks that the player list is only rebuilt when a player joins or leaves
+    @Test
+    void snapshotTest() {
+        var index = new OnlinePlayerIndex<EnvyPlayer<Object>>();
+        var uuid = UUID.randomUUID();
+
+        index.add(uuid, player(new AtomicReference<>("Alex")));
+        var players = index.getPlayers();
+
+        assert players.size() == 1;
+        assert index.getPlayers() == players;
+
+        index.remove(uuid);
+
+        assert index.getPlayers() != players;
+        assert index.getPlayers().isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EnvyPlayer<Object> player(AtomicReference<String> name) {
+        return (EnvyPlayer<Object>) Proxy.newProxyInstance(EnvyPlayer.class.getClassLoader(), new Class<?>[]{EnvyPlayer.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getName":
+                            return name.get();
+                        case "getParent":
+                            return name.get() == null ? null : name;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,71 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.save.impl.EmptySaveManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OfflineAttributeCacheTests {
+
+    // Checks that repeated and concurrent loads of the same attribute only load once, and are counted as a miss then a hit
+    @Test
+    void singleFlightTest() {
+        var cache = OfflineAttributeCache.builder().build();
+        var loads = new AtomicInteger();
+        var loading = new CompletableFuture<TestAttribute>();
+
+        var first = cache.get(TestAttribute.class, "id", () -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        var second = cache.get(TestAttribute.class, "id", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(new TestAttribute());
+        });
+
+        assert first == second;
+        assert loads.get() == 1;
+        assert cache.getMissCount() == 1 && cache.getHitCount() == 1;
+        assert cache.getLoadCount() == 0;
+
+        loading.complete(new TestAttribute());
+        assert cache.getLoadCount() == 1;
+        assert cache.size() == 1;
+    }
+
+    // Checks that saving another copy of the attribute removes the cached one, but saving the cached one doesn't
+    @Test
+    void saveInvalidatesTest() {
+        var saveManager = new EmptySaveManager<Object>(null);
+        var cache = OfflineAttributeCache.builder().build();
+        var cached = new TestAttribute();
+
+        saveManager.setOfflineAttributeCache(cache);
+        cache.get(TestAttribute.class, "id", () -> CompletableFuture.completedFuture(cached));
+
+        saveManager.queueSave("id", cached);
+        assert cache.size() == 1;
+
+        saveManager.queueSave("id", new TestAttribute());
+        assert cache.size() == 0;
+    }
+
+    private static class TestAttribute implements Attribute<String, Object> {
+
+        @Override
+        public CompletableFuture<String> getId() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void load(String id) {}
+
+        @Override
+        public void save(String id) {}
+
+        @Override
+        public void deleteAll(SaveManager<?> saveManager) {}
+    }
+}
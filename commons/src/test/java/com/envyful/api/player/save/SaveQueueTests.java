@@ -0,0 +1,136 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.save.impl.EmptySaveManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SaveQueueTests {
+
+    // Checks that saving the same attribute multiple times before a flush only writes it once
+    @Test
+    void coalesceSavesTest() {
+        var saveManager = new EmptySaveManager<Object>(null);
+        var queue = SaveQueue.builder(saveManager).flushInterval(1, TimeUnit.HOURS).build();
+        var attribute = new CountingAttribute();
+        var id = UUID.randomUUID();
+
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue(id, attribute);
+        }
+
+        assert queue.getQueueDepth() == 1;
+        assert queue.getMergedCount() == 9;
+        assert queue.flush() == 1;
+        assert attribute.saves.get() == 1;
+        assert queue.getQueueDepth() == 0;
+        queue.shutdown();
+    }
+
+    // Checks that saves for different ids are all written and null attributes are counted as dropped
+    @Test
+    void flushAllTest() {
+        var saveManager = new EmptySaveManager<Object>(null);
+        var queue = SaveQueue.builder(saveManager).flushInterval(1, TimeUnit.HOURS).maxBatchSize(1000).build();
+        var attribute = new CountingAttribute();
+
+        for (int i = 0; i < 50; i++) {
+            queue.enqueue(UUID.randomUUID(), attribute);
+        }
+
+        queue.enqueue(UUID.randomUUID(), null);
+
+        assert queue.getDroppedCount() == 1;
+        assert queue.shutdown() == 50;
+        assert attribute.saves.get() == 50;
+    }
+
+    // Checks that a queued save can still be read back while it is being written, and that a failed write stays queued
+    @Test
+    void pendingUntilWrittenTest() {
+        var saveManager = new EmptySaveManager<Object>(null);
+        var queue = SaveQueue.builder(saveManager).flushInterval(1, TimeUnit.HOURS).build();
+        var id = UUID.randomUUID();
+        var attribute = new CountingAttribute() {
+            @Override
+            public void save(UUID saveId) {
+                assert queue.getPending(this.getClass(), saveId) == this;
+                super.save(saveId);
+
+                if (this.saves.get() == 1) {
+                    throw new IllegalStateException("Failed write");
+                }
+            }
+        };
+
+        queue.enqueue(id, attribute);
+
+        assert queue.flush() == 0;
+        assert queue.getFailedCount() == 1;
+        assert queue.getQueueDepth() == 1;
+        assert queue.flush() == 1;
+        assert queue.getQueueDepth() == 0;
+        assert queue.getPending(attribute.getClass(), id) == null;
+        queue.shutdown();
+    }
+
+    // Checks that the future returned when queueing only completes once the save, or the save merged over it, is written
+    @Test
+    void writtenFutureTest() {
+        var saveManager = new EmptySaveManager<Object>(null);
+        var queue = SaveQueue.builder(saveManager).flushInterval(1, TimeUnit.HOURS).build();
+        var attribute = new CountingAttribute();
+        var id = UUID.randomUUID();
+
+        var first = queue.enqueue(id, attribute);
+        var second = queue.enqueue(id, attribute);
+
+        assert !first.isDone() && !second.isDone();
+        assert queue.flush() == 1;
+        assert first.isDone() && !first.isCompletedExceptionally();
+        assert second.isDone() && !second.isCompletedExceptionally();
+        assert queue.enqueue(id, null).isCompletedExceptionally();
+        queue.shutdown();
+    }
+
+    // Checks that closing the save manager writes anything left in its queue
+    @Test
+    void closeSaveManagerTest() {
+        var saveManager = new EmptySaveManager<Object>(null);
+        var attribute = new CountingAttribute();
+        saveManager.setSaveQueue(SaveQueue.builder(saveManager).flushInterval(1, TimeUnit.HOURS).build());
+
+        var written = saveManager.queueSave(UUID.randomUUID(), attribute);
+
+        assert !written.isDone();
+        saveManager.close();
+        assert written.isDone() && !written.isCompletedExceptionally();
+        assert attribute.saves.get() == 1;
+        assert saveManager.getSaveQueue().getQueueDepth() == 0;
+    }
+
+    private static class CountingAttribute implements Attribute<UUID, Object> {
+
+        protected final AtomicInteger saves = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<UUID> getId() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void load(UUID id) {}
+
+        @Override
+        public void save(UUID id) {
+            this.saves.incrementAndGet();
+        }
+
+        @Override
+        public void deleteAll(SaveManager<?> saveManager) {}
+    }
+}
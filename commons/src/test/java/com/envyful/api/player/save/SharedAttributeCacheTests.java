@@ -0,0 +1,106 @@
+package com.envyful.api.player.save;
+
+import com.envyful.api.player.Attribute;
+import com.envyful.api.player.EnvyPlayer;
+import com.envyful.api.player.PlayerManager;
+import com.envyful.api.player.save.impl.EmptySaveManager;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedAttributeCacheTests {
+
+    // Checks that concurrent loads of the same attribute share one future and only load once
+    @Test
+    void singleFlightTest() {
+        var cache = SharedAttributeCache.builder(new EmptySaveManager<Object>(null)).build();
+        var loads = new AtomicInteger();
+        var loading = new CompletableFuture<CountingAttribute>();
+
+        var first = cache.get(CountingAttribute.class, "guild", () -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        var second = cache.get(CountingAttribute.class, "guild", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(new CountingAttribute());
+        });
+
+        assert first == second;
+        assert loads.get() == 1;
+        cache.shutdown();
+    }
+
+    // Checks that idle entries are saved before they are evicted
+    @Test
+    void evictIdleTest() {
+        var cache = SharedAttributeCache.builder(new EmptySaveManager<Object>(null)).idleTime(0, TimeUnit.MILLISECONDS).build();
+        var attribute = new CountingAttribute();
+
+        cache.put("guild", attribute);
+
+        assert cache.evict() == 1;
+        assert attribute.saves.get() == 1;
+        assert cache.size() == 0;
+        cache.shutdown();
+    }
+
+    // Checks that the least recently used entries are evicted once the cache is over its max size
+    @Test
+    void evictMaxSizeTest() {
+        var cache = SharedAttributeCache.builder(new EmptySaveManager<Object>(null)).maxSize(2).build();
+
+        for (int i = 0; i < 5; i++) {
+            cache.put("guild" + i, new CountingAttribute());
+        }
+
+        assert cache.evict() == 3;
+        assert cache.size() == 2;
+        cache.shutdown();
+    }
+
+    // Checks that invalidating only removes attributes that no online player holds
+    @Test
+    @SuppressWarnings("unchecked")
+    void invalidateUnheldTest() {
+        var held = new CountingAttribute();
+        var player = (EnvyPlayer<Object>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{EnvyPlayer.class},
+                (proxy, method, args) -> method.getName().equals("getAttribute") ? CompletableFuture.completedFuture(held) : null);
+        var playerManager = (PlayerManager<EnvyPlayer<Object>, Object>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PlayerManager.class},
+                (proxy, method, args) -> method.getName().equals("getOnlinePlayers") ? List.of(player) : null);
+        var cache = SharedAttributeCache.builder(new EmptySaveManager<Object>(null)).playerManager(playerManager).build();
+
+        cache.put("held", held);
+        cache.put("unheld", new CountingAttribute());
+
+        assert cache.invalidateIf(CountingAttribute.class, id -> true) == 1;
+        assert cache.getIfPresent(CountingAttribute.class, "held") == held;
+        assert cache.getIfPresent(CountingAttribute.class, "unheld") == null;
+        cache.shutdown();
+    }
+
+    private static class CountingAttribute implements Attribute<String, Object> {
+
+        private final AtomicInteger saves = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<String> getId() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void load(String id) {}
+
+        @Override
+        public void save(String id) {
+            this.saves.incrementAndGet();
+        }
+
+        @Override
+        public void deleteAll(SaveManager<?> saveManager) {}
+    }
+}
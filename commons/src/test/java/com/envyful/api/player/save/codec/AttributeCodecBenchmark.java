@@ -0,0 +1,90 @@
+package com.envyful.api.player.save.codec;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Compares the encode/decode time and size of the attribute codecs using a large
+ * statistics style attribute. Each codec writes through a single reused buffer, like the save manager does.
+ * <br>
+ * Run with `java AttributeCodecBenchmark [iterations]`
+ *
+ */
+public class AttributeCodecBenchmark {
+
+    private static final Gson GSON = new Gson();
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        var data = LargeAttribute.create();
+
+        for (var codec : List.of(AttributeCodec.json(), AttributeCodec.binary())) {
+            // Warm up
+            run(codec, data, iterations / 5);
+            run(codec, data, iterations);
+        }
+    }
+
+    private static void run(AttributeCodec codec, LargeAttribute data, int iterations) throws Exception {
+        var buffer = new ByteArrayOutputStream(8192);
+        long encodeTime = 0;
+        long decodeTime = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            buffer.reset();
+            long start = System.nanoTime();
+            codec.encode(GSON, data, buffer);
+            long encoded = System.nanoTime();
+            codec.decode(GSON, LargeAttribute.class, new ByteArrayInputStream(buffer.toByteArray()));
+            decodeTime += System.nanoTime() - encoded;
+            encodeTime += encoded - start;
+        }
+
+        System.out.printf("%s: %d bytes, encode %.1fus/op, decode %.1fus/op%n", codec.getExtension(), buffer.size(),
+                encodeTime / 1000.0 / iterations, decodeTime / 1000.0 / iterations);
+    }
+
+    public static class LargeAttribute {
+
+        private Map<String, Long> statistics;
+        private List<Slot> party;
+
+        public static LargeAttribute create() {
+            var attribute = new LargeAttribute();
+            attribute.statistics = Maps.newLinkedHashMap();
+            attribute.party = Lists.newArrayList();
+
+            for (int i = 0; i < 500; i++) {
+                attribute.statistics.put("statistic_" + i, i * 7919L);
+            }
+
+            for (int i = 0; i < 30; i++) {
+                attribute.party.add(new Slot("species_" + i, i, i * 0.5, i % 2 == 0));
+            }
+
+            return attribute;
+        }
+    }
+
+    public static class Slot {
+
+        private String species;
+        private int level;
+        private double experience;
+        private boolean shiny;
+
+        public Slot(String species, int level, double experience, boolean shiny) {
+            this.species = species;
+            this.level = level;
+            this.experience = experience;
+            this.shiny = shiny;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.envyful.api.player.save.codec;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class AttributeCodecTests {
+
+    private static final Gson GSON = new Gson();
+
+    // Checks that every value type survives being written and read back by the binary codec
+    @Test
+    void binaryRoundTripTest() throws IOException {
+        var data = TestData.create();
+        var outputStream = new ByteArrayOutputStream();
+        AttributeCodec.binary().encode(GSON, data, outputStream);
+
+        var decoded = AttributeCodec.binary().decode(GSON, TestData.class, new ByteArrayInputStream(outputStream.toByteArray()));
+
+        assert GSON.toJson(decoded).equals(GSON.toJson(data));
+        assert decoded.negative == Long.MIN_VALUE;
+        assert decoded.text.equals("Hello é世");
+        assert decoded.missing == null;
+    }
+
+    // Checks that the binary codec is smaller than the JSON codec for the same data
+    @Test
+    void binarySmallerThanJsonTest() throws IOException {
+        var data = TestData.create();
+        var binary = new ByteArrayOutputStream();
+        var json = new ByteArrayOutputStream();
+        AttributeCodec.binary().encode(GSON, data, binary);
+        AttributeCodec.json().encode(GSON, data, json);
+
+        assert binary.size() < json.size();
+    }
+
+    // Checks that data without the binary header is rejected instead of being read as garbage
+    @Test
+    void invalidHeaderTest() {
+        try {
+            AttributeCodec.binary().decode(GSON, TestData.class, new ByteArrayInputStream("{\"count\":1}".getBytes()));
+            assert false;
+        } catch (IOException e) {
+            assert e.getMessage().contains("header");
+        }
+    }
+
+    public static class TestData {
+
+        private int count;
+        private long negative;
+        private double ratio;
+        private boolean enabled;
+        private String text;
+        private String missing;
+        private List<Integer> values;
+        private Map<String, Long> statistics;
+
+        public static TestData create() {
+            var data = new TestData();
+            data.count = 42;
+            data.negative = Long.MIN_VALUE;
+            data.ratio = 0.125;
+            data.enabled = true;
+            data.text = "Hello é世";
+            data.values = Lists.newArrayList(1, -1, 300, Integer.MAX_VALUE);
+            data.statistics = Maps.newLinkedHashMap();
+
+            for (int i = 0; i < 50; i++) {
+                data.statistics.put("statistic_" + i, i * 1000L);
+            }
+
+            return data;
+        }
+    }
+}
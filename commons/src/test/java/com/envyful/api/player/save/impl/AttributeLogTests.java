@@ -0,0 +1,80 @@
+package com.envyful.api.player.save.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class AttributeLogTests {
+
+    // Checks that the latest value for a key is read back, including after the log is reopened
+    @Test
+    void reopenRebuildsIndexTest(@TempDir Path directory) throws IOException {
+        var log = new AttributeLog(directory, 1024);
+        log.write("a", bytes("first"));
+        log.write("b", bytes("other"));
+        log.write("a", bytes("second"));
+        log.delete("b");
+        log.close();
+
+        var reopened = new AttributeLog(directory, 1024);
+
+        assert Arrays.equals(reopened.read("a"), bytes("second"));
+        assert reopened.read("b") == null;
+        assert reopened.size() == 1;
+        reopened.close();
+    }
+
+    // Checks that a record cut off part way through (i.e. from a crash) is dropped when reopening
+    @Test
+    void tornWriteTest(@TempDir Path directory) throws IOException {
+        var log = new AttributeLog(directory, 1024);
+        log.write("a", bytes("kept"));
+        log.write("b", bytes("torn"));
+        log.close();
+
+        try (var channel = FileChannel.open(directory.resolve("segment-0.log"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        var reopened = new AttributeLog(directory, 1024);
+
+        assert Arrays.equals(reopened.read("a"), bytes("kept"));
+        assert reopened.read("b") == null;
+        reopened.write("b", bytes("rewritten"));
+        assert Arrays.equals(reopened.read("b"), bytes("rewritten"));
+        reopened.close();
+    }
+
+    // Checks that overwritten segments are removed by compaction without losing the live values
+    @Test
+    void compactionTest(@TempDir Path directory) throws IOException {
+        var log = new AttributeLog(directory, 64);
+
+        for (int i = 0; i < 50; i++) {
+            log.write("a", bytes("value-" + i));
+            log.write("b", bytes("value-" + i));
+        }
+
+        int segments = log.getSegmentCount();
+        int removed = log.compact(0.5);
+
+        assert removed > 0;
+        assert log.getSegmentCount() < segments;
+        assert Arrays.equals(log.read("a"), bytes("value-49"));
+        log.close();
+
+        var reopened = new AttributeLog(directory, 64);
+        assert Arrays.equals(reopened.read("b"), bytes("value-49"));
+        reopened.close();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.envyful.api.player.save.impl;
+
+import com.envyful.api.player.save.attribute.ColumnData;
+import com.envyful.api.player.save.attribute.Queries;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class SQLAttributeMappingTests {
+
+    // Checks that only the changed columns are found, including changes made inside a collection
+    @Test
+    void changedColumnsTest() {
+        var mapping = SQLAttributeMapping.of(TestAttribute.class);
+        var attribute = new TestAttribute();
+        var before = mapping.snapshot(attribute);
+
+        attribute.kills++;
+        attribute.history.add("won");
+
+        assert mapping.getChangedColumns(before, mapping.snapshot(attribute)) == 0b101L;
+    }
+
+    // Checks that the update only sets the changed columns, and that the same query is reused for the same columns
+    @Test
+    void deltaQueryTest() {
+        var mapping = SQLAttributeMapping.of(TestAttribute.class);
+        var query = mapping.getDeltaUpdateQuery(0b011L);
+
+        assert query.equals("UPDATE stats SET kills = ?, name = ? WHERE uuid = ?;");
+        assert mapping.getDeltaUpdateQuery(0b011L) == query;
+        assert mapping.toDeltaParameters("id", mapping.snapshot(new TestAttribute()), 0b011L).size() == 3;
+    }
+
+    @Queries(value = {}, updateQuery = "", loadQuery = "", table = "stats")
+    private static class TestAttribute {
+
+        @ColumnData("kills")
+        private int kills = 0;
+
+        @ColumnData("name")
+        private String name = "Steve";
+
+        @ColumnData("history")
+        private List<String> history = Lists.newArrayList();
+
+    }
+}
@@ -1,13 +1,13 @@
 package com.envyful.api.forge.player;
 
 import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.forge.chat.UtilChatColour;
 import com.envyful.api.forge.concurrency.UtilForgeConcurrency;
 import com.envyful.api.forge.player.attribute.ForgeTrigger;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.AttributeBuilder;
 import com.envyful.api.player.PlayerManager;
 import com.envyful.api.player.manager.AbstractPlayerManager;
-import com.google.common.collect.Lists;
 import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.player.PlayerEvent;
@@ -37,10 +37,9 @@ public class ForgePlayerManager extends AbstractPlayerManager<ForgeEnvyPlayer, S
     @Override
     public <X extends Attribute<Y, ServerPlayerEntity>, Y> void registerAttribute(AttributeBuilder<X, Y, ServerPlayerEntity> builder) {
         builder.triggers(
-                ForgeTrigger.singleSet(PlayerEvent.PlayerLoggedInEvent.class, event -> this.cachedPlayers.get(event.getEntity().getUUID())),
-                ForgeTrigger.singleSave(PlayerEvent.PlayerLoggedOutEvent.class, event -> this.cachedPlayers.get(event.getEntity().getUUID())),
-                ForgeTrigger.save(WorldEvent.Save.class, event -> Lists.newArrayList(this.cachedPlayers.values())),
-                ForgeTrigger.save(FMLServerStoppingEvent.class, event -> Lists.newArrayList(this.cachedPlayers.values()))
+                ForgeTrigger.singleSet(PlayerEvent.PlayerLoggedInEvent.class, event -> this.getLoginTriggerPlayer(this.getPlayer(event.getEntity().getUUID()))),
+                ForgeTrigger.singleSave(PlayerEvent.PlayerLoggedOutEvent.class, event -> this.getPlayer(event.getEntity().getUUID())),
+                ForgeTrigger.save(WorldEvent.Save.class, event -> this.getOnlinePlayers())
         );
 
         super.registerAttribute(builder);
@@ -51,18 +50,33 @@ public class ForgePlayerManager extends AbstractPlayerManager<ForgeEnvyPlayer, S
         @SubscribeEvent(priority = EventPriority.HIGHEST)
         public void onPlayerJoin(PlayerEvent.PlayerLoggedInEvent event) {
             var player = new ForgeEnvyPlayer(saveManager, (ServerPlayerEntity) event.getPlayer());
-            cachedPlayers.put(event.getPlayer().getUUID(), player);
+            addPlayer(event.getPlayer().getUUID(), player);
+
+            var loginAdmission = getLoginAdmission();
+
+            if (loginAdmission != null) {
+                admit(player).thenAccept(result -> {
+                    if (!result.isAdmitted()) {
+                        UtilForgeConcurrency.runSync(() -> player.getParent().connection.disconnect(UtilChatColour.colour(loginAdmission.getKickMessage())));
+                    }
+                });
+            }
         }
 
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onPlayerQuit(PlayerEvent.PlayerLoggedOutEvent event) {
-            UtilForgeConcurrency.runLater(() -> cachedPlayers.remove(event.getEntity().getUUID()), 40);
+            UtilForgeConcurrency.runLater(() -> removePlayer(event.getEntity().getUUID()), 40);
+        }
+
+        @SubscribeEvent(priority = EventPriority.LOWEST)
+        public void onServerStopping(FMLServerStoppingEvent event) {
+            flushOnShutdown();
         }
 
         @SubscribeEvent(priority = EventPriority.HIGHEST)
         public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
             UtilConcurrency.runLater(() -> {
-                ForgeEnvyPlayer player = cachedPlayers.get(event.getPlayer().getUUID());
+                ForgeEnvyPlayer player = getPlayer(event.getPlayer().getUUID());
 
                 player.setParent((ServerPlayerEntity) event.getPlayer());
             }, 5L);
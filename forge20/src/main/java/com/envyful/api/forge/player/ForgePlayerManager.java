@@ -1,13 +1,13 @@
 package com.envyful.api.forge.player;
 
 import com.envyful.api.concurrency.UtilConcurrency;
+import com.envyful.api.forge.chat.UtilChatColour;
 import com.envyful.api.forge.concurrency.UtilForgeConcurrency;
 import com.envyful.api.forge.player.attribute.ForgeTrigger;
 import com.envyful.api.player.Attribute;
 import com.envyful.api.player.AttributeBuilder;
 import com.envyful.api.player.PlayerManager;
 import com.envyful.api.player.manager.AbstractPlayerManager;
-import com.google.common.collect.Lists;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.player.PlayerEvent;
@@ -36,10 +36,9 @@ public class ForgePlayerManager extends AbstractPlayerManager<ForgeEnvyPlayer, S
     @Override
     public <X extends Attribute<Y, ServerPlayer>, Y> void registerAttribute(AttributeBuilder<X, Y, ServerPlayer> builder) {
         builder.triggers(
-                ForgeTrigger.singleSet(PlayerEvent.PlayerLoggedInEvent.class, event -> this.cachedPlayers.get(event.getEntity().getUUID())),
-                ForgeTrigger.singleSave(PlayerEvent.PlayerLoggedOutEvent.class, event -> this.cachedPlayers.get(event.getEntity().getUUID())),
-                ForgeTrigger.save(LevelEvent.Save.class, event -> Lists.newArrayList(this.cachedPlayers.values())),
-                ForgeTrigger.save(ServerStoppingEvent.class, event -> Lists.newArrayList(this.cachedPlayers.values()))
+                ForgeTrigger.singleSet(PlayerEvent.PlayerLoggedInEvent.class, event -> this.getLoginTriggerPlayer(this.getPlayer(event.getEntity().getUUID()))),
+                ForgeTrigger.singleSave(PlayerEvent.PlayerLoggedOutEvent.class, event -> this.getPlayer(event.getEntity().getUUID())),
+                ForgeTrigger.save(LevelEvent.Save.class, event -> this.getOnlinePlayers())
         );
 
         super.registerAttribute(builder);
@@ -50,18 +49,33 @@ public class ForgePlayerManager extends AbstractPlayerManager<ForgeEnvyPlayer, S
         @SubscribeEvent(priority = EventPriority.HIGHEST)
         public void onPlayerJoin(PlayerEvent.PlayerLoggedInEvent event) {
             var player = new ForgeEnvyPlayer(saveManager, (ServerPlayer) event.getEntity());
-            cachedPlayers.put(event.getEntity().getUUID(), player);
+            addPlayer(event.getEntity().getUUID(), player);
+
+            var loginAdmission = getLoginAdmission();
+
+            if (loginAdmission != null) {
+                admit(player).thenAccept(result -> {
+                    if (!result.isAdmitted()) {
+                        UtilForgeConcurrency.runSync(() -> player.getParent().connection.disconnect(UtilChatColour.colour(loginAdmission.getKickMessage())));
+                    }
+                });
+            }
         }
 
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onPlayerQuit(PlayerEvent.PlayerLoggedOutEvent event) {
-            UtilForgeConcurrency.runLater(() -> cachedPlayers.remove(event.getEntity().getUUID()), 40);
+            UtilForgeConcurrency.runLater(() -> removePlayer(event.getEntity().getUUID()), 40);
+        }
+
+        @SubscribeEvent(priority = EventPriority.LOWEST)
+        public void onServerStopping(ServerStoppingEvent event) {
+            flushOnShutdown();
         }
 
         @SubscribeEvent(priority = EventPriority.HIGHEST)
         public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
             UtilConcurrency.runLater(() -> {
-                var player = cachedPlayers.get(event.getEntity().getUUID());
+                var player = getPlayer(event.getEntity().getUUID());
 
                 player.setParent((ServerPlayer) event.getEntity());
             }, 5L);
@@ -8,8 +8,8 @@ import com.envyful.api.player.PlayerManager;
 import com.envyful.api.player.manager.AbstractPlayerManager;
 import com.envyful.api.spigot.event.ServerShutdownEvent;
 import com.envyful.api.spigot.player.attribute.SpigotTrigger;
-import com.google.common.collect.Lists;
 import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -43,10 +43,9 @@ public class SpigotPlayerManager extends AbstractPlayerManager<SpigotEnvyPlayer,
     @Override
     public <X extends Attribute<Y, Player>, Y> void registerAttribute(AttributeBuilder<X, Y, Player> builder) {
         builder.triggers(
-                SpigotTrigger.singleSet(this.plugin, AsyncPlayerPreLoginEvent.class, event -> this.cachedPlayers.get(event.getUniqueId())),
-                SpigotTrigger.singleSave(this.plugin, PlayerQuitEvent.class, event -> this.cachedPlayers.get(event.getPlayer().getUniqueId())),
-                SpigotTrigger.save(this.plugin, WorldSaveEvent.class, event -> Lists.newArrayList(this.cachedPlayers.values())),
-                SpigotTrigger.save(this.plugin, ServerShutdownEvent.class, event -> Lists.newArrayList(this.cachedPlayers.values()))
+                SpigotTrigger.singleSet(this.plugin, AsyncPlayerPreLoginEvent.class, event -> this.getLoginTriggerPlayer(this.getPlayer(event.getUniqueId()))),
+                SpigotTrigger.singleSave(this.plugin, PlayerQuitEvent.class, event -> this.getPlayer(event.getPlayer().getUniqueId())),
+                SpigotTrigger.save(this.plugin, WorldSaveEvent.class, event -> this.getOnlinePlayers())
         );
 
         super.registerAttribute(builder);
@@ -57,25 +56,49 @@ public class SpigotPlayerManager extends AbstractPlayerManager<SpigotEnvyPlayer,
         @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
         public void onAsyncPrePlayerLogin(AsyncPlayerPreLoginEvent event) {
             var player = new SpigotEnvyPlayer(saveManager, event.getUniqueId());
-            cachedPlayers.put(event.getUniqueId(), player);
+            addPlayer(event.getUniqueId(), player);
+        }
+
+        @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+        public void onPrePlayerLoginAdmission(AsyncPlayerPreLoginEvent event) {
+            var loginAdmission = getLoginAdmission();
+            var player = getPlayer(event.getUniqueId());
+
+            if (loginAdmission == null || player == null || event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+                return;
+            }
+
+            var result = admit(player).join();
+
+            if (!result.isAdmitted()) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, ChatColor.translateAlternateColorCodes('&', loginAdmission.getKickMessage()));
+                removePlayer(event.getUniqueId());
+            }
         }
 
         @EventHandler(priority = EventPriority.LOWEST)
         public void onPlayerJoin(PlayerLoginEvent event) {
-            cachedPlayers.get(event.getPlayer().getUniqueId()).setParent(event.getPlayer());
+            getPlayer(event.getPlayer().getUniqueId()).setParent(event.getPlayer());
+            updatePlayerName(event.getPlayer().getUniqueId());
         }
 
         @EventHandler(priority = EventPriority.MONITOR)
         public void onPlayerQuit(PlayerQuitEvent event) {
-            Bukkit.getScheduler().runTaskLater(plugin, () -> cachedPlayers.remove(event.getPlayer().getUniqueId()), 40L);
+            Bukkit.getScheduler().runTaskLater(plugin, () -> removePlayer(event.getPlayer().getUniqueId()), 40L);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onServerShutdown(ServerShutdownEvent event) {
+            flushOnShutdown();
         }
 
         @EventHandler(priority = EventPriority.LOWEST)
         public void onPlayerRespawn(PlayerPostRespawnEvent event) {
             UtilConcurrency.runLater(() -> {
-                SpigotEnvyPlayer player = cachedPlayers.get(event.getPlayer().getUniqueId());
+                SpigotEnvyPlayer player = getPlayer(event.getPlayer().getUniqueId());
 
                 player.setParent(event.getPlayer());
+                updatePlayerName(event.getPlayer().getUniqueId());
             }, 5L);
         }
     }
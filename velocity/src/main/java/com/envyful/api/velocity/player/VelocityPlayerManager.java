@@ -5,12 +5,16 @@ import com.envyful.api.player.AttributeBuilder;
 import com.envyful.api.player.PlayerManager;
 import com.envyful.api.player.manager.AbstractPlayerManager;
 import com.envyful.api.velocity.player.attribute.VelocityTrigger;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.ResultedEvent;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 
 import java.util.concurrent.TimeUnit;
 
@@ -39,8 +43,8 @@ public class VelocityPlayerManager extends AbstractPlayerManager<VelocityEnvyPla
     @Override
     public <X extends Attribute<Y, Player>, Y> void registerAttribute(AttributeBuilder<X, Y, Player> builder) {
         builder.triggers(
-                VelocityTrigger.singleSet(proxyServer, plugin, LoginEvent.class, event -> this.cachedPlayers.get(event.getPlayer().getUniqueId())),
-                VelocityTrigger.singleSave(proxyServer, plugin, DisconnectEvent.class, event -> this.cachedPlayers.get(event.getPlayer().getUniqueId()))
+                VelocityTrigger.singleSet(proxyServer, plugin, LoginEvent.class, event -> this.getLoginTriggerPlayer(this.getPlayer(event.getPlayer().getUniqueId()))),
+                VelocityTrigger.singleSave(proxyServer, plugin, DisconnectEvent.class, event -> this.getPlayer(event.getPlayer().getUniqueId()))
         );
 
         super.registerAttribute(builder);
@@ -52,14 +56,36 @@ public class VelocityPlayerManager extends AbstractPlayerManager<VelocityEnvyPla
         public void onAsyncPrePlayerLogin(LoginEvent event) {
             VelocityEnvyPlayer player = new VelocityEnvyPlayer(saveManager, proxyServer, event.getPlayer().getUniqueId());
             player.setParent(event.getPlayer());
-            cachedPlayers.put(event.getPlayer().getUniqueId(), player);
+            addPlayer(event.getPlayer().getUniqueId(), player);
+        }
+
+        @Subscribe(order = PostOrder.LAST)
+        public EventTask onLoginAdmission(LoginEvent event) {
+            var loginAdmission = getLoginAdmission();
+            var player = getPlayer(event.getPlayer().getUniqueId());
+
+            if (loginAdmission == null || player == null || !event.getResult().isAllowed()) {
+                return null;
+            }
+
+            return EventTask.resumeWhenComplete(admit(player).thenAccept(result -> {
+                if (!result.isAdmitted()) {
+                    event.setResult(ResultedEvent.ComponentResult.denied(LegacyComponentSerializer.legacyAmpersand().deserialize(loginAdmission.getKickMessage())));
+                    removePlayer(event.getPlayer().getUniqueId());
+                }
+            }));
         }
 
         @Subscribe(order = PostOrder.LAST)
         public void onPlayerQuit(DisconnectEvent event) {
-            proxyServer.getScheduler().buildTask(plugin, () -> cachedPlayers.remove(event.getPlayer().getUniqueId()))
+            proxyServer.getScheduler().buildTask(plugin, () -> removePlayer(event.getPlayer().getUniqueId()))
                     .delay(4, TimeUnit.SECONDS)
                     .schedule();
         }
+
+        @Subscribe(order = PostOrder.LAST)
+        public void onProxyShutdown(ProxyShutdownEvent event) {
+            flushOnShutdown();
+        }
     }
 }
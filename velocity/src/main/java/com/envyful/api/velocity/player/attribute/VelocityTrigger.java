@@ -37,7 +37,15 @@ public class VelocityTrigger {
      * @param <A> the event type
      */
     public static <A> AttributeTrigger<Player> singleSet(ProxyServer server, Object plugin, Class<A> event, Function<A, VelocityEnvyPlayer> converter) {
-        return set(server, plugin, event, a -> List.of(converter.apply(a)));
+        return set(server, plugin, event, a -> {
+            var player = converter.apply(a);
+
+            if (player == null) {
+                return List.of();
+            }
+
+            return List.of(player);
+        });
     }
 
     /**